@@ -1,5 +1,12 @@
 package com.hum;
 
+import com.hum.logparsing.LineFilter;
+import com.hum.logparsing.SubSecondSpreader;
+import com.hum.requestexecutor.LateRequestPolicy;
+import com.hum.requestexecutor.engines.RequestEngineType;
+import com.hum.requestexecutor.results.ResultFormat;
+import com.hum.scheduler.LaneDispatcher;
+import com.hum.scheduler.ScaleLoadSpreader;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -10,30 +17,63 @@ import org.apache.commons.cli.ParseException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.format.DateTimeFormatter;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public class Arguments {
-    private final Path nginxLogPath;
+    private final String nginxLogPath;
     private final String logFormat;
-    private final DateTimeFormatter formatTime;
+    private final String formatTime;
     private final String destinationHost;
     private final String httpProtocol;
     private final Float speed;
     private final Float scaleLoad;
+    private final ScaleLoadSpreader.Mode scaleLoadSpread;
+    private final int scaleLoadWindow;
+    private final long seed;
+    private final String loadProfile;
+    private final int loadLogInterval;
+    private final int metricsInterval;
+    private final Integer metricsPort;
     private final Long startTimestamp;
+    private final Long endTimestamp;
+    private final LineFilter lineFilter;
     private final int connectTimeout;
     private final int socketTimeout;
     private final Integer parserThreads;
     private final Integer requestsThreads;
     private final int requestQueueCapacity;
     private final RejectedExecutionHandler queuePolicy;
+    private final LateRequestPolicy lateRequestPolicy;
+    private final boolean adaptiveConcurrency;
+    private final int minConcurrency;
+    private final int lanes;
+    private final LaneDispatcher.LaneKey laneKey;
     private final boolean ignoreSsl;
     private final boolean closeConnectionAfterFirstByte;
     private final String username;
     private final String password;
+    private final boolean streaming;
+    private final int reorderWindow;
+    private final int streamBufferSize;
+    private final int dictionarySize;
+    private final Integer memoryBudget;
+    private final Path spillDirectory;
+    private final SubSecondSpreader.Mode subSecondSpread;
+    private final RequestEngineType engine;
+    private final int maxInFlight;
+    private final Path latencyLogPath;
+    private final int latencyLogInterval;
+    private final Path resultFilePath;
+    private final ResultFormat resultFormat;
+    private final int resultBufferSize;
+    private final boolean printResults;
+    private final Path workloadPath;
+    private final Path compileWorkloadPath;
 
     public Arguments(String[] args) throws ParseException, URISyntaxException {
         Options options = getOptions();
@@ -43,40 +83,93 @@ public class Arguments {
             displayHelpAndExit(options);
         }
 
-        this.nginxLogPath = Paths.get(getOptionValue(cmd, "nginxLogPath", true));
+        String workloadPath = getOptionValue(cmd, "workloadPath", false, null);
+        this.workloadPath = workloadPath != null ? Paths.get(workloadPath) : null;
+        this.nginxLogPath = getOptionValue(cmd, "nginxLogPath", this.workloadPath == null, "");
+        String compileWorkloadPath = getOptionValue(cmd, "compileWorkloadPath", false, null);
+        this.compileWorkloadPath = compileWorkloadPath != null ? Paths.get(compileWorkloadPath) : null;
         this.logFormat = getOptionValue(cmd, "logFormat", false, "\"[$requestTime]\" \"$requestUrl\" \"$statusCode\" \"$refererHeader\" \"$userAgentHeader\" \"$destinationHost\" \"$responseTime\"");
-        this.formatTime = DateTimeFormatter.ofPattern(getOptionValue(cmd, "formatTime", false, "dd/MMM/yyyy:HH:mm:ss Z"), Locale.ENGLISH);
+        this.formatTime = getOptionValue(cmd, "formatTime", false, "dd/MMM/yyyy:HH:mm:ss Z");
         this.destinationHost = getOptionValue(cmd, "destinationHost", false, null);
         this.httpProtocol = getOptionValue(cmd, "httpProtocol", false, "https");
         this.speed = Float.valueOf(getOptionValue(cmd, "speed", false, "1.0"));
         this.scaleLoad = Float.valueOf(getOptionValue(cmd, "scaleLoad", false, "1.0"));
+        this.scaleLoadSpread = ScaleLoadSpreader.Mode.valueOf(getOptionValue(cmd, "scaleLoadSpread", false, "random").toUpperCase(Locale.ROOT));
+        this.scaleLoadWindow = Integer.parseInt(getOptionValue(cmd, "scaleLoadWindow", false, "1000"));
+        this.loadProfile = getOptionValue(cmd, "loadProfile", false, null);
+        this.loadLogInterval = Integer.parseInt(getOptionValue(cmd, "loadLogInterval", false, "10"));
+        this.metricsInterval = Integer.parseInt(getOptionValue(cmd, "metricsInterval", false, "0"));
+        String metricsPort = getOptionValue(cmd, "metricsPort", false, null);
+        this.metricsPort = metricsPort != null ? Integer.valueOf(metricsPort) : null;
+        String seed = getOptionValue(cmd, "seed", false, null);
+        this.seed = seed != null ? Long.parseLong(seed) : new SecureRandom().nextLong();
         String startTimestamp = getOptionValue(cmd, "startTimestamp", false, null);
         this.startTimestamp = startTimestamp != null ? Long.valueOf(startTimestamp) : null;
+        String endTimestamp = getOptionValue(cmd, "endTimestamp", false, null);
+        this.endTimestamp = endTimestamp != null ? Long.valueOf(endTimestamp) : null;
+        String sampleRate = getOptionValue(cmd, "sampleRate", false, null);
+        this.lineFilter = new LineFilter(
+                getListOptionValue(cmd, "filterMethods"),
+                getListOptionValue(cmd, "filterPathPrefixes"),
+                getListOptionValue(cmd, "excludePathPrefixes"),
+                getOptionValue(cmd, "filterPathRegex", false, null),
+                getListOptionValue(cmd, "filterStatuses"),
+                getListOptionValue(cmd, "filterHosts"),
+                sampleRate != null ? Double.valueOf(sampleRate) : null,
+                Long.parseLong(getOptionValue(cmd, "sampleSeed", false, "0"))
+        );
         this.connectTimeout = Integer.parseInt(getOptionValue(cmd, "connectTimeout", false, "1"));
         this.socketTimeout = Integer.parseInt(getOptionValue(cmd, "socketTimeout", false, "10"));
         this.parserThreads = Integer.parseInt(getOptionValue(cmd, "parserThreads", false, String.valueOf(Runtime.getRuntime().availableProcessors() - 1)));
         this.requestsThreads = Integer.parseInt(getOptionValue(cmd, "requestsThreads", false, String.valueOf(Runtime.getRuntime().availableProcessors() - 1)));
         this.requestQueueCapacity = Integer.parseInt(getOptionValue(cmd, "requestQueueCapacity", false, "100"));
         this.queuePolicy = determineQueuePolicy(cmd);
+        String maxLateness = getOptionValue(cmd, "maxLateness", false, null);
+        this.lateRequestPolicy = maxLateness != null ? new LateRequestPolicy(
+                LateRequestPolicy.Action.valueOf(getOptionValue(cmd, "lateRequestPolicy", false, "drop").toUpperCase(Locale.ROOT)),
+                Integer.parseInt(maxLateness)
+        ) : null;
+        this.adaptiveConcurrency = cmd.hasOption("adaptiveConcurrency");
+        this.minConcurrency = Integer.parseInt(getOptionValue(cmd, "minConcurrency", false, "1"));
+        this.lanes = Integer.parseInt(getOptionValue(cmd, "lanes", false, "1"));
+        this.laneKey = LaneDispatcher.LaneKey.valueOf(getOptionValue(cmd, "laneKey", false, "hash").toUpperCase(Locale.ROOT));
         this.ignoreSsl = cmd.hasOption("ignoreSsl");
         this.closeConnectionAfterFirstByte = cmd.hasOption("closeConnectionAfterFirstByte");
         this.username = getOptionValue(cmd, "username", false, null);
         this.password = getOptionValue(cmd, "password", false, null);
+        this.streaming = cmd.hasOption("streaming");
+        this.reorderWindow = Integer.parseInt(getOptionValue(cmd, "reorderWindow", false, "5"));
+        this.streamBufferSize = Integer.parseInt(getOptionValue(cmd, "streamBufferSize", false, "100000"));
+        this.dictionarySize = Integer.parseInt(getOptionValue(cmd, "dictionarySize", false, "65536"));
+        String memoryBudget = getOptionValue(cmd, "memoryBudget", false, null);
+        this.memoryBudget = memoryBudget != null ? Integer.valueOf(memoryBudget) : null;
+        this.spillDirectory = Paths.get(getOptionValue(cmd, "spillDirectory", false, System.getProperty("java.io.tmpdir")));
+        this.engine = RequestEngineType.valueOf(getOptionValue(cmd, "engine", false, "blocking").toUpperCase(Locale.ROOT));
+        this.maxInFlight = Integer.parseInt(getOptionValue(cmd, "maxInFlight", false, "1000"));
+        this.subSecondSpread = SubSecondSpreader.Mode.valueOf(getOptionValue(cmd, "subSecondSpread", false, "none").toUpperCase(Locale.ROOT));
+        String latencyLogPath = getOptionValue(cmd, "latencyLogPath", false, null);
+        this.latencyLogPath = latencyLogPath != null ? Paths.get(latencyLogPath) : null;
+        this.latencyLogInterval = Integer.parseInt(getOptionValue(cmd, "latencyLogInterval", false, "1"));
+        if (latencyLogInterval < 1) {
+            throw new IllegalArgumentException("latencyLogInterval must be at least 1 second");
+        }
+        this.resultFormat = ResultFormat.valueOf(getOptionValue(cmd, "resultFormat", false, "tsv").toUpperCase(Locale.ROOT));
+        this.resultBufferSize = Integer.parseInt(getOptionValue(cmd, "resultBufferSize", false, "65536"));
+        this.printResults = !cmd.hasOption("disableStats");
 
         String defaultLogPath = this.destinationHost != null ? this.destinationHost
                 .replace("https://", "")
                 .replace("http://", "") + "-nginx.log" : "nginx.log";
         String errorLogPath = Paths.get("errors-" + defaultLogPath).toString();
-        String resultFilePath = Paths.get(getOptionValue(cmd, "resultFilePath", false, defaultLogPath)).toString();
+        Path resultFilePath = Paths.get(getOptionValue(cmd, "resultFilePath", false, defaultLogPath));
 
-        System.setProperty("logFilePath", resultFilePath);
         System.setProperty("errorLogFilePath", errorLogPath);
 
         if (cmd.hasOption("disableWriteToFile")) {
-            System.setProperty("fileLogLevel", "OFF");
+            this.resultFilePath = null;
             System.setProperty("errorFileLogLevel", "OFF");
         } else {
-            System.setProperty("fileLogLevel", "INFO");
+            this.resultFilePath = resultFilePath;
             System.setProperty("errorFileLogLevel", "ERROR");
         }
 
@@ -111,6 +204,11 @@ public class Arguments {
         return getOptionValue(cmd, option, required, null);
     }
 
+    private List<String> getListOptionValue(CommandLine cmd, String option) {
+        String value = getOptionValue(cmd, option, false, null);
+        return value != null ? Arrays.asList(value.split("\\s*,\\s*")) : null;
+    }
+
     private RejectedExecutionHandler determineQueuePolicy(CommandLine cmd) {
         int queuePolicy = Integer.parseInt(getOptionValue(cmd, "queuePolicy", false, "1"));
         switch (queuePolicy) {
@@ -130,15 +228,23 @@ public class Arguments {
     private static Options getOptions() {
         Options options = new Options();
 
-        Option nginxLogPath = new Option(null, "nginxLogPath", true, "Path to the nginx log file");
-        nginxLogPath.setRequired(true);
+        Option nginxLogPath = new Option(null, "nginxLogPath", true, "Nginx log files: comma separated files, directories or glob patterns, gzip and zstd files are decompressed (required unless workloadPath is set)");
+        nginxLogPath.setRequired(false);
         options.addOption(nginxLogPath);
 
+        Option compileWorkloadPath = new Option(null, "compileWorkloadPath", true, "Parse the nginx log, write it as a sorted binary workload file to this path and exit");
+        compileWorkloadPath.setRequired(false);
+        options.addOption(compileWorkloadPath);
+
+        Option workloadPath = new Option(null, "workloadPath", true, "Replay a workload file written by compileWorkloadPath instead of parsing an nginx log");
+        workloadPath.setRequired(false);
+        options.addOption(workloadPath);
+
         Option logFormat = new Option(null, "logFormat", true, "Format of the Nginx log structure (default: \"[$requestTime]\" \"$requestUrl\" \"$statusCode\" \"$refererHeader\" \"$userAgentHeader\" \"$destinationHost\" \"$responseTime\")");
         logFormat.setRequired(false);
         options.addOption(logFormat);
 
-        Option formatTime = new Option(null, "formatTime", true, "Nginx log time format (default: \"dd/MMM/yyyy:HH:mm:ss Z\")");
+        Option formatTime = new Option(null, "formatTime", true, "Nginx log time format, or \"iso8601\" for $time_iso8601 and \"msec\" for $msec values (default: \"dd/MMM/yyyy:HH:mm:ss Z\")");
         formatTime.setRequired(false);
         options.addOption(formatTime);
 
@@ -162,10 +268,74 @@ public class Arguments {
         scaleLoad.setRequired(false);
         options.addOption(scaleLoad);
 
+        Option scaleLoadSpread = new Option(null, "scaleLoadSpread", true, "Placement of the extra copies of scaled-up requests within scaleLoadWindow: burst, even, random (default: random)");
+        scaleLoadSpread.setRequired(false);
+        options.addOption(scaleLoadSpread);
+
+        Option scaleLoadWindow = new Option(null, "scaleLoadWindow", true, "Milliseconds after a request within which its extra copies are sent (default: 1000)");
+        scaleLoadWindow.setRequired(false);
+        options.addOption(scaleLoadWindow);
+
+        Option loadProfile = new Option(null, "loadProfile", true, "Speed and scale load changing during the run, phases or a file with them, e.g. \"hold 10m; ramp 20m scale=4\"");
+        loadProfile.setRequired(false);
+        options.addOption(loadProfile);
+
+        Option loadLogInterval = new Option(null, "loadLogInterval", true, "Seconds between console lines with the active load factors and dispatch rate when loadProfile is set (default: 10)");
+        loadLogInterval.setRequired(false);
+        options.addOption(loadLogInterval);
+
+        Option metricsInterval = new Option(null, "metricsInterval", true, "Seconds between console lines with dispatch lag, queue, in-flight, connection pool, parser and GC metrics, 0 to disable, ignored with --disableStats (default: 0)");
+        metricsInterval.setRequired(false);
+        options.addOption(metricsInterval);
+
+        Option metricsPort = new Option(null, "metricsPort", true, "Port of an HTTP endpoint serving replay metrics in Prometheus text format on /metrics (default: disabled)");
+        metricsPort.setRequired(false);
+        options.addOption(metricsPort);
+
+        Option seed = new Option(null, "seed", true, "Seed of the random scale load decisions and subSecondSpread, to reproduce a run (default: random, printed at start)");
+        seed.setRequired(false);
+        options.addOption(seed);
+
         Option startTimestamp = new Option(null, "startTimestamp", true, "Start replaying the log from a specific timestamp");
         startTimestamp.setRequired(false);
         options.addOption(startTimestamp);
 
+        Option endTimestamp = new Option(null, "endTimestamp", true, "Stop replaying the log before a specific timestamp");
+        endTimestamp.setRequired(false);
+        options.addOption(endTimestamp);
+
+        Option filterMethods = new Option(null, "filterMethods", true, "Replay only requests with these comma separated methods, e.g. GET,HEAD");
+        filterMethods.setRequired(false);
+        options.addOption(filterMethods);
+
+        Option filterPathPrefixes = new Option(null, "filterPathPrefixes", true, "Replay only requests whose path starts with one of these comma separated prefixes");
+        filterPathPrefixes.setRequired(false);
+        options.addOption(filterPathPrefixes);
+
+        Option excludePathPrefixes = new Option(null, "excludePathPrefixes", true, "Skip requests whose path starts with one of these comma separated prefixes");
+        excludePathPrefixes.setRequired(false);
+        options.addOption(excludePathPrefixes);
+
+        Option filterPathRegex = new Option(null, "filterPathRegex", true, "Replay only requests whose path contains a match of this regex");
+        filterPathRegex.setRequired(false);
+        options.addOption(filterPathRegex);
+
+        Option filterStatuses = new Option(null, "filterStatuses", true, "Replay only requests with these comma separated logged status codes or classes, e.g. 2xx,404");
+        filterStatuses.setRequired(false);
+        options.addOption(filterStatuses);
+
+        Option filterHosts = new Option(null, "filterHosts", true, "Replay only requests with these comma separated logged destination hosts");
+        filterHosts.setRequired(false);
+        options.addOption(filterHosts);
+
+        Option sampleRate = new Option(null, "sampleRate", true, "Replay a deterministic sample of this fraction of the log lines, e.g. 0.1");
+        sampleRate.setRequired(false);
+        options.addOption(sampleRate);
+
+        Option sampleSeed = new Option(null, "sampleSeed", true, "Seed of the sample hash, another seed selects another sample (default: 0)");
+        sampleSeed.setRequired(false);
+        options.addOption(sampleSeed);
+
         Option connectTimeout = new Option(null, "connectTimeout", true, "Connect timeout for the requests (default: 1)");
         connectTimeout.setRequired(false);
         options.addOption(connectTimeout);
@@ -190,6 +360,38 @@ public class Arguments {
         queuePolicy.setRequired(false);
         options.addOption(queuePolicy);
 
+        Option maxLateness = new Option(null, "maxLateness", true, "Milliseconds a request may start after its intended send time, a full queue holds the replay until then at most instead of applying queuePolicy (default: disabled)");
+        maxLateness.setRequired(false);
+        options.addOption(maxLateness);
+
+        Option lateRequestPolicy = new Option(null, "lateRequestPolicy", true, "What to do with requests that missed maxLateness: drop, send (default: drop)");
+        lateRequestPolicy.setRequired(false);
+        options.addOption(lateRequestPolicy);
+
+        Option adaptiveConcurrency = new Option(null, "adaptiveConcurrency", false, "Resize request threads (or the in-flight limit of the async and virtual engines) and connection pool at runtime between minConcurrency and requestsThreads (maxInFlight for the async and virtual engines), by the start lag and response time of requests");
+        adaptiveConcurrency.setRequired(false);
+        options.addOption(adaptiveConcurrency);
+
+        Option minConcurrency = new Option(null, "minConcurrency", true, "Lower bound of adaptiveConcurrency (default: 1)");
+        minConcurrency.setRequired(false);
+        options.addOption(minConcurrency);
+
+        Option lanes = new Option(null, "lanes", true, "Count of dispatch lanes, each with its own scheduler thread, request queue, request threads and connection pool; requestsThreads, maxInFlight and requestQueueCapacity are split between the lanes (default: 1)");
+        lanes.setRequired(false);
+        options.addOption(lanes);
+
+        Option laneKey = new Option(null, "laneKey", true, "How requests are split between lanes: hash (even split), host (all requests of a destination host in one lane) (default: hash)");
+        laneKey.setRequired(false);
+        options.addOption(laneKey);
+
+        Option engine = new Option(null, "engine", true, "Request engine: blocking (thread per in-flight request), async (non-blocking I/O, requestsThreads is the count of I/O threads) or virtual (virtual thread per request, Java 21+) (default: blocking)");
+        engine.setRequired(false);
+        options.addOption(engine);
+
+        Option maxInFlight = new Option(null, "maxInFlight", true, "Async and virtual engines: max count of requests in flight and of open connections (default: 1000)");
+        maxInFlight.setRequired(false);
+        options.addOption(maxInFlight);
+
         Option ignoreSsl = new Option(null, "ignoreSsl", false, "Ignore SSL (default: false)");
         ignoreSsl.setRequired(false);
         options.addOption(ignoreSsl);
@@ -198,6 +400,14 @@ public class Arguments {
         closeConnectionAfterFirstByte.setRequired(false);
         options.addOption(closeConnectionAfterFirstByte);
 
+        Option resultFormat = new Option(null, "resultFormat", true, "Format of the result file: tsv or binary (convert with com.hum.requestexecutor.results.ResultConverter) (default: tsv)");
+        resultFormat.setRequired(false);
+        options.addOption(resultFormat);
+
+        Option resultBufferSize = new Option(null, "resultBufferSize", true, "Count of results buffered for the result writer thread (default: 65536)");
+        resultBufferSize.setRequired(false);
+        options.addOption(resultBufferSize);
+
         Option disableStats = new Option(null, "disableStats", false, "Disable display the execution progress in the console (default: false)");
         disableStats.setRequired(false);
         options.addOption(disableStats);
@@ -214,6 +424,42 @@ public class Arguments {
         password.setRequired(false);
         options.addOption(password);
 
+        Option streaming = new Option(null, "streaming", false, "Replay requests while the log is still being parsed, keeping memory bounded (default: false)");
+        streaming.setRequired(false);
+        options.addOption(streaming);
+
+        Option reorderWindow = new Option(null, "reorderWindow", true, "Streaming mode: seconds of log time to hold back for reordering out-of-order lines (default: 5)");
+        reorderWindow.setRequired(false);
+        options.addOption(reorderWindow);
+
+        Option streamBufferSize = new Option(null, "streamBufferSize", true, "Streaming mode: max count of parsed requests buffered ahead of replay (default: 100000)");
+        streamBufferSize.setRequired(false);
+        options.addOption(streamBufferSize);
+
+        Option dictionarySize = new Option(null, "dictionarySize", true, "Max count of distinct hosts, referers and user agents shared by parsed requests, per field and parser worker (default: 65536)");
+        dictionarySize.setRequired(false);
+        options.addOption(dictionarySize);
+
+        Option memoryBudget = new Option(null, "memoryBudget", true, "Sort the log externally: parse it in ranges fitting the budget in MB, spill sorted runs to temporary files and merge them during replay; the budget counts parsed requests, not the dictionaries bounded by dictionarySize");
+        memoryBudget.setRequired(false);
+        options.addOption(memoryBudget);
+
+        Option spillDirectory = new Option(null, "spillDirectory", true, "Directory for the sorted runs of the external sort (default: java.io.tmpdir)");
+        spillDirectory.setRequired(false);
+        options.addOption(spillDirectory);
+
+        Option subSecondSpread = new Option(null, "subSecondSpread", true, "Spread requests of second-precision logs within their second: none, even, random (default: none)");
+        subSecondSpread.setRequired(false);
+        options.addOption(subSecondSpread);
+
+        Option latencyLogPath = new Option(null, "latencyLogPath", true, "Path of the HdrHistogram interval log with TTFB and total latencies per status class");
+        latencyLogPath.setRequired(false);
+        options.addOption(latencyLogPath);
+
+        Option latencyLogInterval = new Option(null, "latencyLogInterval", true, "Seconds between histograms in the latency log, at least 1 (default: 1)");
+        latencyLogInterval.setRequired(false);
+        options.addOption(latencyLogInterval);
+
         Option help = new Option("h", "help", false, "display help for command");
         help.setRequired(false);
         options.addOption(help);
@@ -221,7 +467,7 @@ public class Arguments {
         return options;
     }
 
-    public Path getNginxLogPath() {
+    public String getNginxLogPath() {
         return nginxLogPath;
     }
 
@@ -229,7 +475,7 @@ public class Arguments {
         return logFormat;
     }
 
-    public DateTimeFormatter getFormatTime() {
+    public String getFormatTime() {
         return formatTime;
     }
 
@@ -249,10 +495,46 @@ public class Arguments {
         return scaleLoad;
     }
 
+    public ScaleLoadSpreader.Mode getScaleLoadSpread() {
+        return scaleLoadSpread;
+    }
+
+    public int getScaleLoadWindow() {
+        return scaleLoadWindow;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getLoadProfile() {
+        return loadProfile;
+    }
+
+    public int getLoadLogInterval() {
+        return loadLogInterval;
+    }
+
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    public Integer getMetricsPort() {
+        return metricsPort;
+    }
+
     public Long getStartTimestamp() {
         return startTimestamp;
     }
 
+    public Long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    public LineFilter getLineFilter() {
+        return lineFilter;
+    }
+
     public int getConnectTimeout() {
         return connectTimeout;
     }
@@ -277,6 +559,26 @@ public class Arguments {
         return queuePolicy;
     }
 
+    public LateRequestPolicy getLateRequestPolicy() {
+        return lateRequestPolicy;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public LaneDispatcher.LaneKey getLaneKey() {
+        return laneKey;
+    }
+
     public boolean isIgnoreSsl() {
         return ignoreSsl;
     }
@@ -292,4 +594,72 @@ public class Arguments {
     public String getPassword() {
         return password;
     }
-}
\ No newline at end of file
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public int getReorderWindow() {
+        return reorderWindow;
+    }
+
+    public int getStreamBufferSize() {
+        return streamBufferSize;
+    }
+
+    public SubSecondSpreader.Mode getSubSecondSpread() {
+        return subSecondSpread;
+    }
+
+    public RequestEngineType getEngine() {
+        return engine;
+    }
+
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    public Integer getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Path getLatencyLogPath() {
+        return latencyLogPath;
+    }
+
+    public int getLatencyLogInterval() {
+        return latencyLogInterval;
+    }
+
+    public Path getResultFilePath() {
+        return resultFilePath;
+    }
+
+    public ResultFormat getResultFormat() {
+        return resultFormat;
+    }
+
+    public int getResultBufferSize() {
+        return resultBufferSize;
+    }
+
+    public boolean isPrintResults() {
+        return printResults;
+    }
+
+    public Path getWorkloadPath() {
+        return workloadPath;
+    }
+
+    public Path getCompileWorkloadPath() {
+        return compileWorkloadPath;
+    }
+}
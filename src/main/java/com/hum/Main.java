@@ -1,73 +1,199 @@
 package com.hum;
 
+import com.hum.logparsing.LogFiles;
 import com.hum.logparsing.LogParser;
+import com.hum.logparsing.LogSource;
+import com.hum.logparsing.SubSecondSpreader;
 import com.hum.logparsing.models.LogEntry;
+import com.hum.metrics.MetricsEndpoint;
+import com.hum.metrics.PipelineMetrics;
+import com.hum.requestexecutor.LatencyRecorder;
 import com.hum.requestexecutor.RequestExecutor;
 import com.hum.requestexecutor.models.RequestExecutorSetup;
+import com.hum.requestexecutor.results.ResultWriter;
+import com.hum.scheduler.LaneDispatcher;
+import com.hum.scheduler.LoadProfile;
+import com.hum.scheduler.ReplayScheduler;
+import com.hum.scheduler.ScaleLoadSpreader;
+import com.hum.workload.WorkloadReader;
+import com.hum.workload.WorkloadWriter;
 import org.apache.commons.cli.ParseException;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
     public static void main(String[] args) {
         Arguments arguments;
-        LogParser logParser;
+        LogSource logSource = null;
+        LatencyRecorder latencyRecorder = null;
+        ResultWriter resultWriter = null;
+        PipelineMetrics pipelineMetrics = null;
+        MetricsEndpoint metricsEndpoint = null;
         RequestExecutor requestExecutor = null;
 
         try {
             arguments = new Arguments(args);
-            logParser = initializeLogParser(arguments);
-            requestExecutor = initializeRequestExecutor(arguments);
-            executeRequests(logParser, requestExecutor);
+            if (arguments.getCompileWorkloadPath() != null) {
+                compileWorkload(arguments);
+                return;
+            }
+
+            logSource = initializeLogSource(arguments);
+            latencyRecorder = new LatencyRecorder(arguments.getLatencyLogPath(), arguments.getLatencyLogInterval());
+            resultWriter = new ResultWriter(arguments.getResultFilePath(), arguments.getResultFormat(), arguments.getResultBufferSize(), arguments.isPrintResults());
+            pipelineMetrics = new PipelineMetrics(arguments.isPrintResults() ? arguments.getMetricsInterval() : 0);
+            if (arguments.getMetricsPort() != null) {
+                metricsEndpoint = new MetricsEndpoint(arguments.getMetricsPort(), pipelineMetrics, latencyRecorder);
+            }
+            requestExecutor = initializeRequestExecutor(arguments, latencyRecorder, resultWriter, pipelineMetrics);
+            executeRequests(arguments, logSource, requestExecutor, latencyRecorder, pipelineMetrics);
         } catch (ParseException | URISyntaxException | InterruptedException | RuntimeException e) {
             e.printStackTrace(System.err);
         } finally {
             if (requestExecutor != null) {
                 requestExecutor.shutDown();
             }
+
+            if (logSource != null) {
+                logSource.close();
+            }
+
+            if (resultWriter != null) {
+                resultWriter.close();
+            }
+
+            if (pipelineMetrics != null) {
+                pipelineMetrics.close();
+            }
+
+            if (latencyRecorder != null) {
+                latencyRecorder.close();
+            }
+
+            if (metricsEndpoint != null) {
+                metricsEndpoint.close();
+            }
+        }
+    }
+
+    private static LogSource initializeLogSource(Arguments arguments) throws RuntimeException {
+        if (arguments.getWorkloadPath() != null) {
+            return new WorkloadReader(
+                    arguments.getWorkloadPath(),
+                    arguments.getStartTimestamp(),
+                    arguments.getEndTimestamp(),
+                    arguments.getDestinationHost(),
+                    arguments.getHttpProtocol()
+            );
         }
+
+        return initializeLogParser(arguments, arguments.isStreaming());
     }
 
-    private static LogParser initializeLogParser(Arguments arguments) throws RuntimeException {
+    private static LogParser initializeLogParser(Arguments arguments, boolean streaming) throws RuntimeException {
         return new LogParser(
-                arguments.getNginxLogPath(),
+                LogFiles.resolve(arguments.getNginxLogPath()),
                 arguments.getLogFormat(),
                 arguments.getFormatTime(),
                 arguments.getStartTimestamp(),
+                arguments.getEndTimestamp(),
+                arguments.getLineFilter(),
                 arguments.getDestinationHost(),
                 arguments.getHttpProtocol(),
-                arguments.getParserThreads()
+                arguments.getParserThreads(),
+                streaming,
+                arguments.getReorderWindow(),
+                arguments.getStreamBufferSize(),
+                arguments.getDictionarySize(),
+                arguments.getMemoryBudget(),
+                arguments.getSpillDirectory()
         );
     }
 
-    private static RequestExecutor initializeRequestExecutor(Arguments arguments) {
-        return new RequestExecutor(
-                new RequestExecutorSetup(
-                        arguments.getScaleLoad(),
-                        arguments.getRequestsThreads(),
-                        arguments.getConnectTimeout(),
-                        arguments.getSocketTimeout(),
-                        arguments.isIgnoreSsl(),
-                        arguments.getRequestQueueCapacity(),
-                        arguments.getQueuePolicy(),
-                        arguments.isCloseConnectionAfterFirstByte()
-                )
-        );
+    private static void compileWorkload(Arguments arguments) throws RuntimeException {
+        LogParser logParser = initializeLogParser(arguments, false);
+        WorkloadWriter workloadWriter = new WorkloadWriter();
+
+        long startMillis = System.currentTimeMillis();
+        long count = workloadWriter.write(arguments.getCompileWorkloadPath(), logParser);
+
+        System.out.println("Workload compiled to " + arguments.getCompileWorkloadPath() + " in " + (System.currentTimeMillis() - startMillis)
+                + " ms, requests: " + count + ", strings: " + workloadWriter.getStringCount());
+    }
+
+    private static RequestExecutor initializeRequestExecutor(Arguments arguments, LatencyRecorder latencyRecorder, ResultWriter resultWriter, PipelineMetrics pipelineMetrics) {
+        int lanes = arguments.getLanes();
+        List<RequestExecutorSetup> requestExecutorSetups = new ArrayList<>(lanes);
+
+        for (int lane = 0; lane < lanes; lane++) {
+            requestExecutorSetups.add(new RequestExecutorSetup(
+                    arguments.getEngine(),
+                    perLane(arguments.getRequestsThreads(), lanes),
+                    perLane(arguments.getMaxInFlight(), lanes),
+                    arguments.getConnectTimeout(),
+                    arguments.getSocketTimeout(),
+                    arguments.isIgnoreSsl(),
+                    perLane(arguments.getRequestQueueCapacity(), lanes),
+                    arguments.getQueuePolicy(),
+                    arguments.getLateRequestPolicy(),
+                    arguments.isAdaptiveConcurrency(),
+                    arguments.getMinConcurrency(),
+                    arguments.isCloseConnectionAfterFirstByte(),
+                    latencyRecorder,
+                    resultWriter,
+                    pipelineMetrics
+            ));
+        }
+
+        return new RequestExecutor(requestExecutorSetups);
     }
 
-    private static void executeRequests(LogParser logParser, RequestExecutor requestExecutor) throws InterruptedException {
-        Logger logger = LogManager.getLogger(Main.class);
+    private static int perLane(int total, int lanes) {
+        return Math.max(1, (total + lanes - 1) / lanes);
+    }
 
-        for (LogEntry logEntry : logParser.getLogEntries()) {
-            Thread.sleep(logEntry.getDelay());
+    private static void executeRequests(Arguments arguments, LogSource logSource, RequestExecutor requestExecutor, LatencyRecorder latencyRecorder, PipelineMetrics pipelineMetrics) throws InterruptedException {
+        SubSecondSpreader.Mode subSecondSpread = arguments.getSubSecondSpread();
+        LoadProfile loadProfile = arguments.getLoadProfile() != null
+                ? LoadProfile.parse(arguments.getLoadProfile(), arguments.getSpeed(), arguments.getScaleLoad())
+                : LoadProfile.constant(arguments.getSpeed(), arguments.getScaleLoad());
+        ReplayScheduler[] replaySchedulers = new ReplayScheduler[requestExecutor.getLaneCount()];
+        for (int lane = 0; lane < replaySchedulers.length; lane++) {
+            replaySchedulers[lane] = new ReplayScheduler(
+                    loadProfile,
+                    new ScaleLoadSpreader(arguments.getScaleLoadSpread(), arguments.getScaleLoadWindow(), arguments.getSeed() + lane),
+                    pipelineMetrics,
+                    lane
+            );
+        }
+        LaneDispatcher laneDispatcher = new LaneDispatcher(
+                replaySchedulers,
+                arguments.getLaneKey(),
+                loadProfile.isConstant() ? 0 : arguments.getLoadLogInterval()
+        );
+        latencyRecorder.setIntervalComment(laneDispatcher::describeLoad);
 
-            try {
-                requestExecutor.executeRequest(logEntry);
-            } catch (Exception e) {
-                logger.error("Error executing request: ", e);
+        Iterable<LogEntry> logEntries = logSource.getLogEntries();
+        if (subSecondSpread != SubSecondSpreader.Mode.NONE) {
+            if (logSource.isSecondPrecision()) {
+                logEntries = new SubSecondSpreader(logEntries, subSecondSpread, arguments.getSeed());
+            } else {
+                System.out.println("Log time has sub-second precision, subSecondSpread is ignored");
             }
         }
+
+        System.out.println("Seed: " + arguments.getSeed());
+        pipelineMetrics.start(logSource, requestExecutor);
+        laneDispatcher.replay(logEntries, requestExecutor);
+
+        System.out.println("Dispatched requests: " + laneDispatcher.getDispatchedCount()
+                + ", dispatched more than 10 ms late: " + laneDispatcher.getLateCount()
+                + ", max dispatch lag: " + laneDispatcher.getMaxLagMillis() + " ms");
+
+        if (logSource.getOutOfOrderCount() > 0) {
+            System.out.println("Requests replayed out of order (outside reorder window): " + logSource.getOutOfOrderCount());
+        }
     }
 }
@@ -0,0 +1,130 @@
+package com.hum.logparsing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense ids to distinct byte strings. Lookups hash and compare the raw bytes in place, so a value that is
+ * already known costs no allocation; the String of an id is created once, on first use and then shared.
+ * At most maxSize values are kept; once full, unknown values get {@link #NOT_INDEXED} and nothing is copied, the caller
+ * stores them itself. Not thread-safe.
+ */
+final class ByteStringTable {
+    static final int NOT_INDEXED = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+    private int[] slots;
+    private int[] hashes;
+    private byte[][] values;
+    private String[] strings;
+    private int size;
+    private long lookups;
+    private long hits;
+
+    ByteStringTable(int maxSize) {
+        this.maxSize = maxSize;
+        this.slots = new int[INITIAL_CAPACITY * 2];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.values = new byte[INITIAL_CAPACITY][];
+        this.strings = new String[INITIAL_CAPACITY];
+    }
+
+    int intern(byte[] buffer, int start, int end) {
+        int hash = hash(buffer, start, end);
+        int mask = slots.length - 1;
+        lookups++;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                if (size == maxSize) return NOT_INDEXED;
+
+                return add(slot, hash, Arrays.copyOfRange(buffer, start, end));
+            }
+
+            if (hashes[id] == hash && regionEquals(values[id], buffer, start, end)) {
+                hits++;
+                return id;
+            }
+        }
+    }
+
+    int intern(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int id = intern(bytes, 0, bytes.length);
+        if (id != NOT_INDEXED && strings[id] == null) strings[id] = value;
+
+        return id;
+    }
+
+    String getString(int id) {
+        String string = strings[id];
+        if (string == null) {
+            string = new String(values[id], StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+
+        return string;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getLookups() {
+        return lookups;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    private int add(int slot, int hash, byte[] value) {
+        if (size == values.length) {
+            int capacity = (int) Math.min((long) size * 2, Math.max(maxSize, INITIAL_CAPACITY));
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+
+        int id = size++;
+        hashes[id] = hash;
+        values[id] = value;
+
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) rehash();
+
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(byte[] buffer, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean regionEquals(byte[] value, byte[] buffer, int start, int end) {
+        if (value.length != end - start) return false;
+
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != buffer[start + i]) return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,249 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.FieldData;
+import com.hum.logparsing.models.LogFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the log lines to replay. Rules run on the raw line bytes before the timestamp is decoded or any string
+ * is built, cheapest first, and every rule counts the lines it dropped.
+ * Sampling hashes the whole line, so the same log always yields the same sample for a given seed.
+ */
+public class LineFilter {
+    private static final String[] RULES = {"sample", "method", "status", "host", "path prefix", "excluded path prefix", "path regex"};
+    private static final int SAMPLE = 0;
+    private static final int METHOD = 1;
+    private static final int STATUS = 2;
+    private static final int HOST = 3;
+    private static final int PATH_PREFIX = 4;
+    private static final int EXCLUDED_PATH_PREFIX = 5;
+    private static final int PATH_REGEX = 6;
+
+    private final byte[][] methods;
+    private final byte[][] pathPrefixes;
+    private final byte[][] excludedPathPrefixes;
+    private final Pattern pathPattern;
+    private final boolean[] statuses;
+    private final byte[][] hosts;
+    private final long sampleThreshold;
+    private final long sampleSeed;
+    private final LongAdder[] droppedCounts;
+    private final ThreadLocal<PathMatcher> pathMatchers;
+
+    /**
+     * @param statuses status codes or classes like {@code 2xx}
+     * @param sampleRate fraction of lines to keep, null to keep all
+     */
+    public LineFilter(List<String> methods, List<String> pathPrefixes, List<String> excludedPathPrefixes, String pathRegex, List<String> statuses, List<String> hosts, Double sampleRate, long sampleSeed) {
+        this.methods = toBytes(methods, true);
+        this.pathPrefixes = toBytes(pathPrefixes, false);
+        this.excludedPathPrefixes = toBytes(excludedPathPrefixes, false);
+        this.pathPattern = pathRegex != null ? Pattern.compile(pathRegex) : null;
+        this.statuses = parseStatuses(statuses);
+        this.hosts = toBytes(hosts, false);
+        this.sampleSeed = sampleSeed;
+        this.droppedCounts = new LongAdder[RULES.length];
+        for (int i = 0; i < RULES.length; i++) droppedCounts[i] = new LongAdder();
+        this.pathMatchers = ThreadLocal.withInitial(() -> new PathMatcher(pathPattern));
+
+        if (sampleRate != null && (sampleRate < 0 || sampleRate > 1)) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+        }
+        this.sampleThreshold = sampleRate == null || sampleRate >= 1 ? Long.MAX_VALUE : (long) (sampleRate * (1L << 53));
+    }
+
+    private static byte[][] toBytes(List<String> values, boolean upperCase) {
+        if (values == null || values.isEmpty()) return null;
+
+        byte[][] bytes = new byte[values.size()][];
+        for (int i = 0; i < values.size(); i++) {
+            String value = upperCase ? values.get(i).toUpperCase(Locale.ROOT) : values.get(i);
+            bytes[i] = value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        return bytes;
+    }
+
+    private static boolean[] parseStatuses(List<String> values) {
+        if (values == null || values.isEmpty()) return null;
+
+        boolean[] statuses = new boolean[1000];
+        for (String value : values) {
+            String status = value.toLowerCase(Locale.ROOT);
+
+            if (status.length() == 3 && status.endsWith("xx") && Character.isDigit(status.charAt(0))) {
+                int statusClass = status.charAt(0) - '0';
+                for (int code = statusClass * 100; code < statusClass * 100 + 100; code++) statuses[code] = true;
+            } else {
+                int code = Integer.parseInt(status);
+                if (code < 0 || code >= statuses.length) throw new IllegalArgumentException("Invalid status code: " + value);
+
+                statuses[code] = true;
+            }
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Rules on the whole line, run before it is tokenized.
+     */
+    boolean acceptLine(byte[] buffer, int start, int end) {
+        if (sampleThreshold != Long.MAX_VALUE && (hash(buffer, start, end) >>> 11) >= sampleThreshold) {
+            return drop(SAMPLE);
+        }
+
+        return true;
+    }
+
+    /**
+     * Rules on the tokenized fields: the request method is [requestStart, methodEnd), the path [methodEnd + 1, pathEnd).
+     */
+    boolean acceptRequest(LineTokenizer tokenizer, LogFormat logFormat, int requestStart, int methodEnd, int pathEnd) {
+        if (methods != null && !equalsAny(tokenizer, requestStart, methodEnd, methods)) {
+            return drop(METHOD);
+        }
+
+        if (statuses != null) {
+            FieldData statusCodeFieldData = logFormat.getStatusCodeFieldData();
+            int statusCode = tokenizer.hasValue(statusCodeFieldData) ? tokenizer.getInt(statusCodeFieldData) : -1;
+
+            if (statusCode < 0 || statusCode >= statuses.length || !statuses[statusCode]) return drop(STATUS);
+        }
+
+        if (hosts != null) {
+            FieldData destinationHostFieldData = logFormat.getDestinationHostFieldData();
+
+            if (!tokenizer.hasValue(destinationHostFieldData) || !equalsAny(tokenizer,
+                    tokenizer.getValueStart(destinationHostFieldData), tokenizer.getValueEnd(destinationHostFieldData), hosts)) {
+                return drop(HOST);
+            }
+        }
+
+        int pathStart = methodEnd + 1;
+        if (pathPrefixes != null && !startsWithAny(tokenizer.getBuffer(), pathStart, pathEnd, pathPrefixes)) {
+            return drop(PATH_PREFIX);
+        }
+
+        if (excludedPathPrefixes != null && startsWithAny(tokenizer.getBuffer(), pathStart, pathEnd, excludedPathPrefixes)) {
+            return drop(EXCLUDED_PATH_PREFIX);
+        }
+
+        if (pathPattern != null && !pathMatchers.get().find(tokenizer.getBuffer(), pathStart, pathEnd)) {
+            return drop(PATH_REGEX);
+        }
+
+        return true;
+    }
+
+    private boolean drop(int rule) {
+        droppedCounts[rule].increment();
+        return false;
+    }
+
+    private static boolean equalsAny(LineTokenizer tokenizer, int start, int end, byte[][] values) {
+        byte[] buffer = tokenizer.getBuffer();
+
+        for (byte[] value : values) {
+            if (value.length == end - start && regionMatches(buffer, start, value)) return true;
+        }
+
+        return false;
+    }
+
+    private static boolean startsWithAny(byte[] buffer, int start, int end, byte[][] prefixes) {
+        for (byte[] prefix : prefixes) {
+            if (prefix.length <= end - start && regionMatches(buffer, start, prefix)) return true;
+        }
+
+        return false;
+    }
+
+    private static boolean regionMatches(byte[] buffer, int start, byte[] value) {
+        for (int i = 0; i < value.length; i++) {
+            if (buffer[start + i] != value[i]) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * FNV-1a over the line, finished with the SplitMix64 mixer so the low and high bits are equally spread.
+     */
+    private long hash(byte[] buffer, int start, int end) {
+        long hash = 0xcbf29ce484222325L ^ sampleSeed;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ buffer[i]) * 0x100000001b3L;
+        }
+
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    public boolean isEmpty() {
+        return sampleThreshold == Long.MAX_VALUE && methods == null && statuses == null && hosts == null
+                && pathPrefixes == null && excludedPathPrefixes == null && pathPattern == null;
+    }
+
+    public void printStats() {
+        if (isEmpty()) return;
+
+        List<String> dropped = new ArrayList<>();
+        for (int i = 0; i < RULES.length; i++) {
+            long count = droppedCounts[i].sum();
+            if (count > 0) dropped.add(RULES[i] + ": " + count);
+        }
+
+        System.out.println("Lines dropped by filters: " + (dropped.isEmpty() ? "none" : String.join(", ", dropped)));
+    }
+
+    /**
+     * Runs the path regex over the raw bytes through a reusable char view, without building a String per line.
+     */
+    private static final class PathMatcher implements CharSequence {
+        private final Matcher matcher;
+        private byte[] buffer;
+        private int start;
+        private int length;
+
+        private PathMatcher(Pattern pattern) {
+            this.matcher = pattern != null ? pattern.matcher(this) : null;
+        }
+
+        private boolean find(byte[] buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.length = end - start;
+
+            return matcher.reset(this).find();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer[start + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, this.start + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.FieldData;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits one log line held in a shared byte buffer into space-delimited, optionally quoted fields.
+ * Only field offsets are recorded; Strings are created when a value is actually requested.
+ * Instances are reused line after line and are not thread-safe.
+ */
+public class LineTokenizer {
+    private static final byte DELIMITER = ' ';
+    private static final byte QUOTE = '"';
+
+    private final int maxFields;
+    private final int[] fieldStarts;
+    private final int[] fieldEnds;
+    private final boolean[] fieldEscaped;
+    private byte[] buffer;
+    private int fieldCount;
+
+    public LineTokenizer(int maxFields) {
+        this.maxFields = maxFields;
+        this.fieldStarts = new int[maxFields];
+        this.fieldEnds = new int[maxFields];
+        this.fieldEscaped = new boolean[maxFields];
+    }
+
+    public int tokenize(byte[] buffer, int start, int end) {
+        this.buffer = buffer;
+        this.fieldCount = 0;
+
+        int pos = start;
+        while (fieldCount < maxFields) {
+            if (pos < end && buffer[pos] == QUOTE) {
+                int valueStart = pos + 1;
+                int i = valueStart;
+                boolean escaped = false;
+
+                while (i < end) {
+                    if (buffer[i] == QUOTE) {
+                        if (i + 1 < end && buffer[i + 1] == QUOTE) {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+
+                addField(valueStart, i, escaped);
+
+                pos = i + 1;
+                while (pos < end && buffer[pos] != DELIMITER) pos++;
+            } else {
+                int i = pos;
+                while (i < end && buffer[i] != DELIMITER) i++;
+
+                addField(pos, i, false);
+                pos = i;
+            }
+
+            if (pos >= end) break;
+            pos++;
+        }
+
+        return fieldCount;
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public String getField(int fieldId) {
+        return decode(fieldStarts[fieldId], fieldEnds[fieldId], fieldEscaped[fieldId]);
+    }
+
+    public boolean hasValue(FieldData fieldData) {
+        Integer fieldId = fieldData.getFieldId();
+        if (fieldId == null || fieldId >= fieldCount) return false;
+
+        int start = fieldStarts[fieldId];
+        int end = fieldEnds[fieldId];
+        int length = end - start;
+
+        if (length == 0 || (length == 1 && (buffer[start] == '-' || buffer[start] == ' '))) {
+            return false;
+        }
+
+        return length >= fieldData.getPrefixLength() + fieldData.getSuffixLength();
+    }
+
+    public int getValueStart(FieldData fieldData) {
+        return fieldStarts[fieldData.getFieldId()] + fieldData.getPrefixLength();
+    }
+
+    public int getValueEnd(FieldData fieldData) {
+        return fieldEnds[fieldData.getFieldId()] - fieldData.getSuffixLength();
+    }
+
+    public String getString(FieldData fieldData) {
+        if (!hasValue(fieldData)) return null;
+
+        return decode(getValueStart(fieldData), getValueEnd(fieldData), fieldEscaped[fieldData.getFieldId()]);
+    }
+
+    public String getString(int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    public boolean isEscaped(FieldData fieldData) {
+        return fieldEscaped[fieldData.getFieldId()];
+    }
+
+    public Integer getInteger(FieldData fieldData) {
+        if (!hasValue(fieldData)) return null;
+
+        return getInt(fieldData);
+    }
+
+    /**
+     * Same as {@link #getInteger(FieldData)} without boxing, the field must have a value.
+     */
+    public int getInt(FieldData fieldData) {
+        int start = getValueStart(fieldData);
+        int end = getValueEnd(fieldData);
+        if (start == end || end - start > 9) return Integer.parseInt(getString(start, end));
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return Integer.parseInt(getString(start, end));
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    public Float getFloat(FieldData fieldData) {
+        if (!hasValue(fieldData)) return null;
+
+        return getFloatValue(fieldData);
+    }
+
+    /**
+     * Same as {@link #getFloat(FieldData)} without boxing, the field must have a value.
+     */
+    public float getFloatValue(FieldData fieldData) {
+        int start = getValueStart(fieldData);
+        int end = getValueEnd(fieldData);
+        if (start == end || end - start > 15) return Float.parseFloat(getString(start, end));
+
+        long value = 0;
+        long scale = 1;
+        boolean fraction = false;
+        for (int i = start; i < end; i++) {
+            byte b = buffer[i];
+
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (fraction) scale *= 10;
+            } else {
+                return Float.parseFloat(getString(start, end));
+            }
+        }
+
+        return (float) ((double) value / scale);
+    }
+
+    public int indexOf(byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == value) return i;
+        }
+
+        return -1;
+    }
+
+    public boolean regionEquals(int start, int end, String ascii) {
+        if (end - start != ascii.length()) return false;
+
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer[start + i] != ascii.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    private String decode(int start, int end, boolean escaped) {
+        String value = getString(start, end);
+
+        return escaped ? value.replace("\"\"", "\"") : value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Lazily merges iterators that are each in request time order into one ordered iterator: reorder buffers of streamed
+ * files, sorted runs of in-memory stores and spilled runs. Entries with equal time are taken from the iterator that
+ * comes first in the list, i.e. in file order.
+ */
+final class LogEntryMerger implements Iterator<LogEntry> {
+    private final PriorityQueue<Head> heads;
+
+    LogEntryMerger(List<? extends Iterator<LogEntry>> sources) {
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                Comparator.<Head>comparingLong(head -> head.logEntry.getRequestTime()).thenComparingInt(head -> head.sourceIndex));
+
+        for (int i = 0; i < sources.size(); i++) {
+            Iterator<LogEntry> source = sources.get(i);
+            if (source.hasNext()) heads.add(new Head(source, i));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public LogEntry next() {
+        Head head = heads.poll();
+        if (head == null) throw new NoSuchElementException();
+
+        LogEntry logEntry = head.logEntry;
+        if (head.advance()) heads.add(head);
+
+        return logEntry;
+    }
+
+    private static final class Head {
+        private final Iterator<LogEntry> source;
+        private final int sourceIndex;
+        private LogEntry logEntry;
+
+        private Head(Iterator<LogEntry> source, int sourceIndex) {
+            this.source = source;
+            this.sourceIndex = sourceIndex;
+            this.logEntry = source.next();
+        }
+
+        private boolean advance() {
+            if (!source.hasNext()) return false;
+
+            logEntry = source.next();
+            return true;
+        }
+    }
+}
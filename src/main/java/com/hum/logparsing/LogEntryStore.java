@@ -0,0 +1,379 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Parsed log entries kept as primitive columns: times, dictionary ids for method, host and headers, and endpoints as
+ * offsets into a shared byte arena. Hosts and headers that don't fit in their dictionary are copied into the arena
+ * too and referenced by an inline id below {@link #NO_VALUE}, so they are owned by their entry and counted in the
+ * footprint. {@link LogEntry} objects are only created by {@link #get(int)} when an entry is replayed.
+ * Not thread-safe, every parser worker fills its own store.
+ */
+public class LogEntryStore {
+    static final int NO_VALUE = -1;
+    static final int NULL_STATUS_CODE = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_ARENA_CHUNK_SIZE = 1 << 16;
+    private static final int MAX_ARENA_CHUNK_SIZE = 1 << 24;
+
+    private final String destinationHost;
+    private final String httpProtocol;
+    private final ByteStringTable methods;
+    private final ByteStringTable hosts;
+    private final ByteStringTable referers;
+    private final ByteStringTable userAgents;
+    private final List<byte[]> arenaChunks = new ArrayList<>();
+    private String[] hostUrls;
+    private byte[] arenaChunk;
+    private int arenaPosition;
+
+    private long[] requestTimes;
+    private byte[] methodIds;
+    private int[] hostIds;
+    private int[] refererIds;
+    private int[] userAgentIds;
+    private int[] statusCodes;
+    private float[] responseTimes;
+    private long[] endpointOffsets;
+    private int[] endpointLengths;
+    private int size;
+    private long[] inlineOffsets;
+    private int[] inlineLengths;
+    private int inlineCount;
+
+    /**
+     * @param destinationHost host with protocol used for all entries, or null to take the host of every entry
+     * @param dictionarySize  max count of distinct values indexed for each of host, referer and user agent
+     */
+    public LogEntryStore(String destinationHost, String httpProtocol, int dictionarySize) {
+        this.destinationHost = destinationHost;
+        this.httpProtocol = httpProtocol;
+        this.methods = new ByteStringTable(0xFF + 1);
+        this.hosts = new ByteStringTable(dictionarySize);
+        this.referers = new ByteStringTable(dictionarySize);
+        this.userAgents = new ByteStringTable(dictionarySize);
+        this.hostUrls = new String[16];
+
+        clear();
+    }
+
+    ByteStringTable getHosts() {
+        return hosts;
+    }
+
+    ByteStringTable getReferers() {
+        return referers;
+    }
+
+    ByteStringTable getUserAgents() {
+        return userAgents;
+    }
+
+    int internMethod(byte[] buffer, int start, int end) {
+        int methodId = methods.intern(buffer, start, end);
+        if (methodId == ByteStringTable.NOT_INDEXED) throw new IllegalStateException("Too many distinct HTTP methods");
+
+        return methodId;
+    }
+
+    int internHost(byte[] buffer, int start, int end) {
+        return intern(hosts, buffer, start, end);
+    }
+
+    int internHost(String host) {
+        return intern(hosts, host);
+    }
+
+    int internReferer(byte[] buffer, int start, int end) {
+        return intern(referers, buffer, start, end);
+    }
+
+    int internReferer(String referer) {
+        return intern(referers, referer);
+    }
+
+    int internUserAgent(byte[] buffer, int start, int end) {
+        return intern(userAgents, buffer, start, end);
+    }
+
+    int internUserAgent(String userAgent) {
+        return intern(userAgents, userAgent);
+    }
+
+    private int intern(ByteStringTable table, byte[] buffer, int start, int end) {
+        int id = table.intern(buffer, start, end);
+
+        return id != ByteStringTable.NOT_INDEXED ? id : addInline(buffer, start, end);
+    }
+
+    private int intern(ByteStringTable table, String value) {
+        int id = table.intern(value);
+        if (id != ByteStringTable.NOT_INDEXED) return id;
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return addInline(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Copies a value into the arena and returns its inline id: {@link #NO_VALUE} - 1 for the first, then downwards.
+     */
+    private int addInline(byte[] buffer, int start, int end) {
+        if (inlineCount == inlineOffsets.length) {
+            inlineOffsets = Arrays.copyOf(inlineOffsets, inlineCount * 2);
+            inlineLengths = Arrays.copyOf(inlineLengths, inlineCount * 2);
+        }
+
+        inlineOffsets[inlineCount] = appendToArena(buffer, start, end);
+        inlineLengths[inlineCount] = end - start;
+
+        return NO_VALUE - 1 - inlineCount++;
+    }
+
+    private static boolean isInline(int id) {
+        return id < NO_VALUE;
+    }
+
+    private String getInline(int id) {
+        int inlineIndex = NO_VALUE - 1 - id;
+
+        return getArenaString(inlineOffsets[inlineIndex], inlineLengths[inlineIndex]);
+    }
+
+    private String getString(ByteStringTable table, int id) {
+        if (id == NO_VALUE) return null;
+
+        return isInline(id) ? getInline(id) : table.getString(id);
+    }
+
+    void add(long requestTime, int methodId, byte[] buffer, int endpointStart, int endpointEnd, int hostId, int refererId, int userAgentId, int statusCode, float responseTime) {
+        if (size == requestTimes.length) grow();
+
+        requestTimes[size] = requestTime;
+        methodIds[size] = (byte) methodId;
+        hostIds[size] = hostId;
+        refererIds[size] = refererId;
+        userAgentIds[size] = userAgentId;
+        statusCodes[size] = statusCode;
+        responseTimes[size] = responseTime;
+        endpointOffsets[size] = appendToArena(buffer, endpointStart, endpointEnd);
+        endpointLengths[size] = endpointEnd - endpointStart;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getRequestTime(int index) {
+        return requestTimes[index];
+    }
+
+    public LogEntry get(int index) {
+        int statusCode = statusCodes[index];
+        float responseTime = responseTimes[index];
+        int refererId = refererIds[index];
+        int userAgentId = userAgentIds[index];
+
+        return new LogEntry(
+                requestTimes[index],
+                methods.getString(methodIds[index] & 0xFF),
+                getEndpoint(index),
+                statusCode != NULL_STATUS_CODE ? statusCode : null,
+                Float.isNaN(responseTime) ? null : responseTime,
+                getHost(hostIds[index]),
+                getString(referers, refererId),
+                getString(userAgents, userAgentId)
+        );
+    }
+
+    /**
+     * Entries in the given order, e.g. a sorted run for {@link LogEntryMerger}.
+     */
+    Iterator<LogEntry> iterator(int[] order) {
+        return new Iterator<LogEntry>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < order.length;
+            }
+
+            @Override
+            public LogEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                return get(order[position++]);
+            }
+        };
+    }
+
+    /**
+     * Writes the entries in the given order to a run file read by {@link SpilledRun}. Per entry: request time, method,
+     * host, referer and user agent as string references, original status code and response time, endpoint bytes.
+     * A string reference is {@link SpilledRun#NO_STRING}, a dictionary id defined earlier in the file, a definition
+     * ({@link SpilledRun#DEFINE_STRING}, id, value) or an inline value ({@link SpilledRun#INLINE_STRING}, value).
+     */
+    void spill(int[] order, Path runPath) throws IOException {
+        BitSet writtenMethods = new BitSet();
+        BitSet writtenHosts = new BitSet();
+        BitSet writtenReferers = new BitSet();
+        BitSet writtenUserAgents = new BitSet();
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runPath), 1 << 16))) {
+            for (int index : order) {
+                int methodId = methodIds[index] & 0xFF;
+                int hostId = hostIds[index];
+                int refererId = refererIds[index];
+                int userAgentId = userAgentIds[index];
+
+                output.writeLong(requestTimes[index]);
+                writeStringReference(output, writtenMethods, methodId, methods.getString(methodId));
+                writeStringReference(output, writtenHosts, hostId, hostId != NO_VALUE ? getHost(hostId) : null);
+                writeStringReference(output, writtenReferers, refererId, getString(referers, refererId));
+                writeStringReference(output, writtenUserAgents, userAgentId, getString(userAgents, userAgentId));
+                output.writeInt(statusCodes[index]);
+                output.writeFloat(responseTimes[index]);
+
+                long offset = endpointOffsets[index];
+                output.writeInt(endpointLengths[index]);
+                output.write(arenaChunks.get((int) (offset >>> 32)), (int) offset, endpointLengths[index]);
+            }
+        }
+    }
+
+    private static void writeStringReference(DataOutputStream output, BitSet written, int id, String value) throws IOException {
+        if (id == NO_VALUE) {
+            output.writeInt(SpilledRun.NO_STRING);
+        } else if (isInline(id)) {
+            output.writeInt(SpilledRun.INLINE_STRING);
+            writeString(output, value);
+        } else if (written.get(id)) {
+            output.writeInt(id);
+        } else {
+            output.writeInt(SpilledRun.DEFINE_STRING);
+            output.writeInt(id);
+            writeString(output, value);
+            written.set(id);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Approximate heap size of the stored entries in bytes, including values stored inline; the dictionaries are
+     * excluded, they are bounded by their max size.
+     */
+    public long getMemoryFootprint() {
+        long arenaSize = 0;
+        for (byte[] chunk : arenaChunks) arenaSize += chunk.length;
+
+        return (long) requestTimes.length * (Long.BYTES * 2 + Integer.BYTES * 5 + Float.BYTES + 1)
+                + (long) inlineOffsets.length * (Long.BYTES + Integer.BYTES) + arenaSize;
+    }
+
+    /**
+     * Drops all entries and their inline values. Dictionary values are kept, so later entries keep sharing them.
+     */
+    public void clear() {
+        arenaChunks.clear();
+        arenaChunk = new byte[INITIAL_ARENA_CHUNK_SIZE];
+        arenaChunks.add(arenaChunk);
+        arenaPosition = 0;
+
+        requestTimes = new long[INITIAL_CAPACITY];
+        methodIds = new byte[INITIAL_CAPACITY];
+        hostIds = new int[INITIAL_CAPACITY];
+        refererIds = new int[INITIAL_CAPACITY];
+        userAgentIds = new int[INITIAL_CAPACITY];
+        statusCodes = new int[INITIAL_CAPACITY];
+        responseTimes = new float[INITIAL_CAPACITY];
+        endpointOffsets = new long[INITIAL_CAPACITY];
+        endpointLengths = new int[INITIAL_CAPACITY];
+        size = 0;
+        inlineOffsets = new long[INITIAL_CAPACITY];
+        inlineLengths = new int[INITIAL_CAPACITY];
+        inlineCount = 0;
+    }
+
+    private void grow() {
+        int capacity = requestTimes.length * 2;
+
+        requestTimes = Arrays.copyOf(requestTimes, capacity);
+        methodIds = Arrays.copyOf(methodIds, capacity);
+        hostIds = Arrays.copyOf(hostIds, capacity);
+        refererIds = Arrays.copyOf(refererIds, capacity);
+        userAgentIds = Arrays.copyOf(userAgentIds, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+        responseTimes = Arrays.copyOf(responseTimes, capacity);
+        endpointOffsets = Arrays.copyOf(endpointOffsets, capacity);
+        endpointLengths = Arrays.copyOf(endpointLengths, capacity);
+    }
+
+    /**
+     * Copies bytes into the arena and returns their offset: chunk index in the high 32 bits, position in the low ones.
+     */
+    private long appendToArena(byte[] buffer, int start, int end) {
+        int length = end - start;
+
+        if (arenaPosition + length > arenaChunk.length) {
+            int chunkSize = Math.max(length, Math.min(arenaChunk.length * 2, MAX_ARENA_CHUNK_SIZE));
+            arenaChunk = new byte[chunkSize];
+            arenaChunks.add(arenaChunk);
+            arenaPosition = 0;
+        }
+
+        System.arraycopy(buffer, start, arenaChunk, arenaPosition, length);
+        long offset = ((long) (arenaChunks.size() - 1) << 32) | arenaPosition;
+        arenaPosition += length;
+
+        return offset;
+    }
+
+    private String getEndpoint(int index) {
+        return getArenaString(endpointOffsets[index], endpointLengths[index]);
+    }
+
+    private String getArenaString(long offset, int length) {
+        byte[] chunk = arenaChunks.get((int) (offset >>> 32));
+
+        return new String(chunk, (int) offset, length, StandardCharsets.UTF_8);
+    }
+
+    private String getHost(int hostId) {
+        if (hostId == NO_VALUE) return destinationHost;
+        if (isInline(hostId)) return toHostUrl(getInline(hostId));
+
+        if (hostId >= hostUrls.length) {
+            hostUrls = Arrays.copyOf(hostUrls, Math.max(hostId + 1, hostUrls.length * 2));
+        }
+
+        String hostUrl = hostUrls[hostId];
+        if (hostUrl == null) {
+            hostUrl = toHostUrl(hosts.getString(hostId));
+            hostUrls[hostId] = hostUrl;
+        }
+
+        return hostUrl;
+    }
+
+    private String toHostUrl(String host) {
+        return host.contains("https://") || host.contains("http://") ? host : httpProtocol + "://" + host;
+    }
+}
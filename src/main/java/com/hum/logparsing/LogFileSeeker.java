@@ -0,0 +1,124 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.FieldData;
+import com.hum.logparsing.models.LogFormat;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the byte window of a time range in a plain log file by binary search on line timestamps, so lines outside
+ * the window are never read. Logs are only roughly in time order, so the window is widened by a margin on both sides;
+ * the exact bounds are still applied to every parsed line.
+ */
+final class LogFileSeeker {
+    private static final long MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MIN_SEARCH_SIZE = 1 << 16;
+    private static final int PROBE_SIZE = 1 << 13;
+    private static final int MAX_LINE_SIZE = 1 << 20;
+    private static final int MAX_PROBED_LINES = 64;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final FileChannel channel;
+    private final LineTokenizer tokenizer;
+    private final TimestampDecoder timestampDecoder;
+    private final FieldData requestTimeFieldData;
+    private final long size;
+    private ByteBuffer probe;
+
+    LogFileSeeker(FileChannel channel, LogFormat logFormat, TimestampDecoder timestampDecoder) throws IOException {
+        this.channel = channel;
+        this.tokenizer = new LineTokenizer(logFormat.getFieldCount());
+        this.timestampDecoder = timestampDecoder;
+        this.requestTimeFieldData = logFormat.getRequestTimeFieldData();
+        this.size = channel.size();
+        this.probe = ByteBuffer.allocate(PROBE_SIZE);
+    }
+
+    /**
+     * Returns a line start such that all lines before it are older than {@code requestTime} minus the margin.
+     */
+    long seekStart(long requestTime) throws IOException {
+        return search(requestTime - MARGIN_MILLIS, false);
+    }
+
+    /**
+     * Returns a line start such that all lines from it on are at least {@code requestTime} plus the margin.
+     */
+    long seekEnd(long requestTime) throws IOException {
+        return search(requestTime + MARGIN_MILLIS, true);
+    }
+
+    private long search(long requestTime, boolean upperBound) throws IOException {
+        long low = 0;
+        long high = size;
+
+        while (high - low > MIN_SEARCH_SIZE) {
+            long middle = LogFileSplitter.nextLineStart(channel, (low + high) >>> 1, size, probe);
+            if (middle >= high) break;
+
+            long lineTime = findRequestTime(middle, high);
+            if (lineTime == NO_TIME) break;
+
+            if (lineTime < requestTime) low = middle;
+            else high = middle;
+        }
+
+        return upperBound ? high : low;
+    }
+
+    /**
+     * Request time of the first parsable line in [offset, limit), {@link #NO_TIME} if none of the probed lines has one.
+     */
+    private long findRequestTime(long offset, long limit) throws IOException {
+        for (int i = 0; i < MAX_PROBED_LINES && offset < limit; i++) {
+            int length = readLine(offset);
+            if (length < 0) return NO_TIME;
+
+            byte[] line = probe.array();
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+
+            try {
+                tokenizer.tokenize(line, 0, end);
+                if (tokenizer.hasValue(requestTimeFieldData)) {
+                    return timestampDecoder.decode(line, tokenizer.getValueStart(requestTimeFieldData), tokenizer.getValueEnd(requestTimeFieldData));
+                }
+            } catch (RuntimeException ignored) {
+                // not a log line, try the next one
+            }
+
+            offset += length + 1;
+        }
+
+        return NO_TIME;
+    }
+
+    /**
+     * Reads the line starting at offset into the probe and returns its length without the line feed,
+     * -1 if the line is longer than {@link #MAX_LINE_SIZE}.
+     */
+    private int readLine(long offset) throws IOException {
+        ((Buffer) probe).clear();
+
+        while (true) {
+            int read = channel.read(probe, offset + probe.position());
+            byte[] bytes = probe.array();
+
+            for (int i = 0; i < probe.position(); i++) {
+                if (bytes[i] == '\n') return i;
+            }
+
+            if (read < 0 || offset + probe.position() >= size) return probe.position();
+            if (probe.hasRemaining()) continue;
+            if (probe.capacity() >= MAX_LINE_SIZE) return -1;
+
+            ByteBuffer grown = ByteBuffer.allocate(probe.capacity() * 2);
+            ((Buffer) probe).flip();
+            grown.put(probe);
+            probe = grown;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.hum.logparsing;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Splits a log file into byte ranges that start and end on line boundaries, so every range can be parsed on its own.
+ */
+final class LogFileSplitter {
+    private static final int MIN_RANGE_SIZE = 1 << 16;
+    private static final int PROBE_SIZE = 1 << 13;
+
+    private LogFileSplitter() {
+    }
+
+    /**
+     * Returns range bounds: range i is [bounds[i], bounds[i + 1]). Ranges may be empty when a line is longer than a range.
+     */
+    static long[] split(FileChannel channel, int rangesCount) throws IOException {
+        return split(channel, 0, channel.size(), rangesCount);
+    }
+
+    /**
+     * Splits the window [start, end) of the file, both bounds must be line starts or the file end.
+     */
+    static long[] split(FileChannel channel, long start, long end, int rangesCount) throws IOException {
+        long size = end - start;
+        int count = (int) Math.max(1, Math.min(rangesCount, size / MIN_RANGE_SIZE));
+
+        long[] bounds = new long[count + 1];
+        bounds[0] = start;
+        bounds[count] = end;
+
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        for (int i = 1; i < count; i++) {
+            bounds[i] = nextLineStart(channel, Math.max(bounds[i - 1], start + size / count * i), end, probe);
+        }
+
+        return bounds;
+    }
+
+    static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        if (position == 0) return 0;
+
+        long offset = position - 1;
+        while (offset < size) {
+            ((Buffer) probe).clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) break;
+
+            byte[] bytes = probe.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') return offset + i + 1;
+            }
+
+            offset += read;
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,184 @@
+package com.hum.logparsing;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Resolves log paths given as files, directories or glob patterns, and opens log files decompressing gzip and zstd
+ * transparently. Compression is detected by the magic bytes, not by the file extension.
+ */
+public final class LogFiles {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAGIC_SIZE = 4;
+    private static final String GLOB_CHARS = "*?[{";
+
+    private LogFiles() {
+    }
+
+    /**
+     * @param paths comma separated files, directories (their regular files, not recursive) or glob patterns,
+     *              e.g. {@code /var/log/nginx/access.log*}
+     */
+    public static List<Path> resolve(String paths) throws RuntimeException {
+        Set<Path> filePaths = new LinkedHashSet<>();
+
+        try {
+            for (String pattern : paths.split(",")) {
+                if (!pattern.trim().isEmpty()) filePaths.addAll(resolvePattern(pattern.trim()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to resolve log files " + paths, e);
+        }
+
+        if (filePaths.isEmpty()) {
+            throw new RuntimeException("No log files found for " + paths);
+        }
+
+        return new ArrayList<>(filePaths);
+    }
+
+    private static List<Path> resolvePattern(String pattern) throws IOException {
+        int globStart = indexOfGlob(pattern);
+
+        if (globStart < 0) {
+            Path path = Paths.get(pattern);
+            if (!Files.isDirectory(path)) return Collections.singletonList(path);
+
+            try (Stream<Path> files = Files.list(path)) {
+                return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+
+        int baseEnd = Math.max(pattern.lastIndexOf('/', globStart), pattern.lastIndexOf('\\', globStart));
+        Path base = baseEnd < 0 ? Paths.get("") : Paths.get(pattern.substring(0, baseEnd + 1));
+        String glob = pattern.substring(baseEnd + 1);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        int depth = glob.contains("**") ? Integer.MAX_VALUE : glob.split("[/\\\\]").length;
+
+        try (Stream<Path> files = Files.walk(base.toAbsolutePath(), depth)) {
+            Path absoluteBase = base.toAbsolutePath();
+
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(absoluteBase.relativize(file)))
+                    .map(file -> base.resolve(absoluteBase.relativize(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int indexOfGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (GLOB_CHARS.indexOf(pattern.charAt(i)) >= 0) return i;
+        }
+
+        return -1;
+    }
+
+    public static boolean isCompressed(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            byte[] magic = new byte[MAGIC_SIZE];
+            int read = readMagic(inputStream, magic);
+
+            return isGzip(magic, read) || isZstd(magic, read);
+        }
+    }
+
+    public static InputStream open(Path path) throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+
+        try {
+            byte[] magic = new byte[MAGIC_SIZE];
+            inputStream.mark(MAGIC_SIZE);
+            int read = readMagic(inputStream, magic);
+            inputStream.reset();
+
+            if (isGzip(magic, read)) return new GZIPInputStream(inputStream, BUFFER_SIZE);
+            if (isZstd(magic, read)) return new BufferedInputStream(new ZstdInputStream(inputStream), BUFFER_SIZE);
+
+            return inputStream;
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the byte window [start, end) of a plain file.
+     */
+    public static InputStream open(Path path, long start, long end) throws IOException {
+        return new BufferedInputStream(new WindowInputStream(FileChannel.open(path, StandardOpenOption.READ), start, end), BUFFER_SIZE);
+    }
+
+    private static int readMagic(InputStream inputStream, byte[] magic) throws IOException {
+        int total = 0;
+
+        while (total < magic.length) {
+            int read = inputStream.read(magic, total, magic.length - total);
+            if (read < 0) break;
+
+            total += read;
+        }
+
+        return total;
+    }
+
+    private static boolean isGzip(byte[] magic, int length) {
+        return length >= 2 && magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b;
+    }
+
+    private static boolean isZstd(byte[] magic, int length) {
+        return length >= 4 && magic[0] == (byte) 0x28 && magic[1] == (byte) 0xb5 && magic[2] == (byte) 0x2f && magic[3] == (byte) 0xfd;
+    }
+
+    private static final class WindowInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private WindowInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= end) return -1;
+
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) position += read;
+
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
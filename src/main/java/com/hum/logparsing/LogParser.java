@@ -3,44 +3,87 @@ package com.hum.logparsing;
 import com.hum.logparsing.models.FieldData;
 import com.hum.logparsing.models.LogEntry;
 import com.hum.logparsing.models.LogFormat;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.CharArrayReader;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.*;
-
-public class LogParser {
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+public class LogParser implements LogSource {
     private static final Logger LOGGER = LogManager.getLogger(LogParser.class);
-    private final Path filePath;
-    private final String logFormat;
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final String[] HTTP_METHODS = {"GET", "POST", "HEAD", "PUT", "OPTIONS", "PATCH", "DELETE"};
+    private final List<Path> filePaths;
+    private final LogFormat logFormat;
     private final Long startTimestamp;
+    private final Long endTimestamp;
+    private final LineFilter lineFilter;
     private final String destinationHost;
     private final String httpProtocol;
-    private final DateTimeFormatter dateFormat;
-    private final ThreadPoolExecutor executor;
-    private final List<LogEntry> logEntries;
-
-    public LogParser(Path filePath, String logFormat, DateTimeFormatter formatTime, Long startTimestamp, String destinationHost, String httpProtocol, int parserThreads) throws RuntimeException {
-        this.filePath = filePath;
-        this.logFormat = logFormat;
+    private final ThreadLocal<TimestampDecoder> timestampDecoders;
+    private final TimestampDecoder timestampDecoder;
+    private final int parserThreads;
+    private final boolean streaming;
+    private final Iterable<LogEntry> logEntries;
+    private final List<ReorderBuffer> reorderBuffers;
+    private final AtomicLong parsedCount;
+    private final int dictionarySize;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+    private final Queue<LogEntryStore> streamingStores;
+    private final AtomicLongArray dictionaryStats;
+    private final LongAdder unsupportedMethodCount;
+    private final AtomicLong parseErrorCount;
+    private volatile String unsupportedMethodSample;
+
+    public LogParser(List<Path> filePaths, String logFormat, String formatTime, Long startTimestamp, Long endTimestamp, LineFilter lineFilter, String destinationHost, String httpProtocol, int parserThreads, boolean streaming, int reorderWindow, int streamBufferSize, int dictionarySize, Integer memoryBudget, Path spillDirectory) throws RuntimeException {
+        this.filePaths = filePaths;
+        this.logFormat = new LogFormat(logFormat);
         this.startTimestamp = startTimestamp;
-        this.destinationHost = destinationHost;
+        this.endTimestamp = endTimestamp;
+        this.lineFilter = lineFilter;
+        this.destinationHost = destinationHost == null || destinationHost.contains("https://") || destinationHost.contains("http://")
+                ? destinationHost : httpProtocol + "://" + destinationHost;
         this.httpProtocol = httpProtocol;
-        this.dateFormat = formatTime;
-        this.executor = initRequestExecutor(parserThreads);
-        logEntries = Collections.synchronizedList(new ArrayList<>());
+        this.timestampDecoder = new TimestampDecoder(this.logFormat.isMsecTime() ? TimestampDecoder.MSEC_PATTERN : formatTime);
+        this.timestampDecoders = ThreadLocal.withInitial(timestampDecoder::copy);
+        this.parserThreads = parserThreads;
+        this.streaming = streaming;
+        this.parsedCount = new AtomicLong();
+        this.dictionarySize = dictionarySize;
+        this.memoryBudget = memoryBudget != null ? memoryBudget * (1L << 20) : 0;
+        this.spillDirectory = spillDirectory;
+        this.streamingStores = new ConcurrentLinkedQueue<>();
+        this.dictionaryStats = new AtomicLongArray(9);
+        this.unsupportedMethodCount = new LongAdder();
+        this.parseErrorCount = new AtomicLong();
+
+        if (streaming) {
+            this.logEntries = null;
+            this.reorderBuffers = new ArrayList<>(filePaths.size());
+            for (int i = 0; i < filePaths.size(); i++) {
+                reorderBuffers.add(new ReorderBuffer(reorderWindow * 1000L, Math.max(1, streamBufferSize / filePaths.size())));
+            }
 
-        parseLog();
+            startStreamingParser();
+        } else {
+            this.reorderBuffers = null;
+            this.logEntries = parseLog();
+        }
     }
 
     private ThreadPoolExecutor initRequestExecutor(int parserThreads) {
@@ -54,56 +97,473 @@ public class LogParser {
         );
     }
 
-    public List<LogEntry> getLogEntries() {
-        return logEntries;
+    @Override
+    public Iterable<LogEntry> getLogEntries() {
+        if (!streaming) return logEntries;
+        if (reorderBuffers.size() == 1) return reorderBuffers.get(0);
+
+        return () -> {
+            List<Iterator<LogEntry>> buffers = new ArrayList<>(reorderBuffers.size());
+            for (ReorderBuffer reorderBuffer : reorderBuffers) buffers.add(reorderBuffer.iterator());
+
+            return new LogEntryMerger(buffers);
+        };
     }
 
-    private void parseLog() throws RuntimeException {
-        try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8);
-             CSVParser csvParser = new CSVParser(reader,
-                     CSVFormat.DEFAULT.withDelimiter(' ')
-                             .withQuote('"')
-                             .withNullString("-")
-                             .withIgnoreSurroundingSpaces()
-             );
-
-             CSVParser formatLogParser = new CSVParser(new CharArrayReader(
-                     this.logFormat.toCharArray()),
-                     CSVFormat.DEFAULT
-                             .withDelimiter(' ')
-                             .withQuote('"')
-                             .withNullString("-")
-                             .withIgnoreSurroundingSpaces()
-             )
-        ) {
-
-            CSVRecord logFormatFields = formatLogParser.getRecords().get(0);
-            LogFormat logFormat = new LogFormat(logFormatFields);
-
-            System.out.println("Start parsing logs");
-            fillLogEntries(csvParser, logFormat);
+    private Iterable<LogEntry> parseLog() throws RuntimeException {
+        long startMillis = System.currentTimeMillis();
+        Iterable<LogEntry> logEntries;
+
+        try {
+            System.out.println("Start parsing logs, files: " + filePaths.size());
+
+            logEntries = memoryBudget > 0 ? parseAndSpillRanges() : parseRangesInMemory();
         } catch (Exception e) {
             LOGGER.error("An error occurred when parsing log: ", e);
             throw new RuntimeException();
         }
 
-        System.out.println("Stopping parser threads");
-        shutDownExecutor();
+        System.out.println("Parsing logs finished in " + (System.currentTimeMillis() - startMillis) + " ms");
+        System.out.println("Count of requests to execute: " + parsedCount.get());
+        printDictionaryStats();
+        printSkippedStats();
+        lineFilter.printStats();
+
+        return logEntries;
+    }
+
+    private Iterable<LogEntry> parseRangesInMemory() throws IOException {
+        ConcurrentSkipListMap<Long, LogEntryStore> rangeEntries = new ConcurrentSkipListMap<>();
+        ConcurrentSkipListMap<Long, int[]> rangeOrders = new ConcurrentSkipListMap<>();
+
+        parseRanges(splitLogFiles(Long.MAX_VALUE), Long.MAX_VALUE, (store, rangeKey) -> {
+            rangeOrders.put(rangeKey, RunSorter.sort(store));
+            rangeEntries.put(rangeKey, store);
+        });
+
+        long memoryFootprint = 0;
+        for (LogEntryStore store : rangeEntries.values()) memoryFootprint += store.getMemoryFootprint();
+        System.out.println("Parsed requests are stored in " + (memoryFootprint >> 20) + " MB");
+
+        LogEntryStore[] stores = rangeEntries.values().toArray(new LogEntryStore[0]);
+        int[][] orders = rangeOrders.values().toArray(new int[0][]);
+
+        return () -> {
+            List<Iterator<LogEntry>> runs = new ArrayList<>(stores.length);
+            for (int i = 0; i < stores.length; i++) runs.add(stores[i].iterator(orders[i]));
+
+            return new LogEntryMerger(runs);
+        };
+    }
+
+    /**
+     * External sort: ranges small enough for the memory budget are parsed, sorted and written to run files one by one,
+     * the runs are merged while the entries are replayed.
+     */
+    private Iterable<LogEntry> parseAndSpillRanges() throws IOException {
+        long maxRangeSize = Math.max(1, memoryBudget / parserThreads);
+        Path spillPath = Files.createTempDirectory(spillDirectory, "nginx-rhythm-");
+        spillPath.toFile().deleteOnExit();
+        ConcurrentSkipListMap<Long, Path> runPaths = new ConcurrentSkipListMap<>();
+        AtomicLong spilledBytes = new AtomicLong();
+
+        parseRanges(splitLogFiles(maxRangeSize), maxRangeSize, (store, rangeKey) -> {
+            Path runPath = spillPath.resolve("run-" + (rangeKey >>> 32) + "-" + (int) rangeKey);
+            runPath.toFile().deleteOnExit();
+
+            try {
+                store.spill(RunSorter.sort(store), runPath);
+                spilledBytes.addAndGet(Files.size(runPath));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to spill sorted run " + runPath, e);
+            }
+
+            runPaths.put(rangeKey, runPath);
+        });
+
+        System.out.println("Sorted runs spilled: " + runPaths.size() + ", " + (spilledBytes.get() >> 20) + " MB in " + spillPath);
+
+        return () -> {
+            List<SpilledRun> runs = new ArrayList<>(runPaths.size());
+            for (Path runPath : runPaths.values()) {
+                runs.add(new SpilledRun(runPath, destinationHost));
+            }
+
+            return new LogEntryMerger(runs);
+        };
+    }
+
+    /**
+     * Splits plain log files into line-aligned ranges of at most {@code maxRangeSize} bytes, proportionally to their size
+     * so all parser threads get work. Only the byte window of the requested time range is split. A compressed file
+     * can't be split or searched and is a single range.
+     */
+    private List<LogRange> splitLogFiles(long maxRangeSize) throws IOException {
+        List<LogRange> windows = new ArrayList<>(filePaths.size());
+        long totalSize = 0;
+        long windowsSize = 0;
+
+        for (Path filePath : filePaths) {
+            long size = Files.size(filePath);
+            LogRange window = LogFiles.isCompressed(filePath) ? new LogRange(filePath, 0, -1) : findTimeWindow(filePath);
+
+            windows.add(window);
+            totalSize += size;
+            windowsSize += window.isCompressed() ? size : window.end - window.start;
+        }
+
+        if (hasTimeWindow()) {
+            System.out.println("Time window: " + (windowsSize >> 20) + " of " + (totalSize >> 20) + " MB to parse");
+        }
+
+        List<LogRange> ranges = new ArrayList<>();
+        for (LogRange window : windows) {
+            if (window.isCompressed()) {
+                ranges.add(window);
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(window.filePath, StandardOpenOption.READ)) {
+                long size = window.end - window.start;
+                long rangesCount = Math.max(
+                        ceilDiv(size * parserThreads * RANGES_PER_THREAD, Math.max(1, windowsSize)),
+                        ceilDiv(size, maxRangeSize)
+                );
+                long[] bounds = LogFileSplitter.split(channel, window.start, window.end, (int) Math.min(Integer.MAX_VALUE, rangesCount));
+
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    ranges.add(new LogRange(window.filePath, bounds[i], bounds[i + 1]));
+                }
+            }
+        }
+
+        return ranges;
+    }
+
+    private boolean hasTimeWindow() {
+        return startTimestamp != null || endTimestamp != null;
+    }
+
+    /**
+     * Byte window of a plain log file holding the lines of [startTimestamp, endTimestamp), found by binary search.
+     */
+    private LogRange findTimeWindow(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (!hasTimeWindow()) return new LogRange(filePath, 0, channel.size());
+
+            LogFileSeeker seeker = new LogFileSeeker(channel, logFormat, timestampDecoders.get());
+            long start = startTimestamp != null ? seeker.seekStart(startTimestamp * 1000) : 0;
+            long end = endTimestamp != null ? seeker.seekEnd(endTimestamp * 1000) : channel.size();
+
+            return new LogRange(filePath, start, Math.max(start, end));
+        }
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return dividend / divisor + (dividend % divisor == 0 ? 0 : 1);
+    }
+
+    /**
+     * Parses all ranges and hands every parsed store to the consumer with a key ordering it in file order:
+     * range index in the high half, chunk index within the range in the low half.
+     */
+    private void parseRanges(List<LogRange> ranges, long maxChunkFootprint, ObjLongConsumer<LogEntryStore> rangeConsumer) {
+        ForkJoinPool pool = new ForkJoinPool(parserThreads);
+
+        try {
+            pool.invoke(new ParseRangesTask(ranges, maxChunkFootprint, rangeConsumer, 0, ranges.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final class LogRange {
+        private final Path filePath;
+        private final long start;
+        private final long end;
+
+        /**
+         * @param end range end, -1 for the whole stream of a compressed file
+         */
+        private LogRange(Path filePath, long start, long end) {
+            this.filePath = filePath;
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean isCompressed() {
+            return end < 0;
+        }
+    }
+
+    /**
+     * Parses ranges [from, to): splits in halves until a single range is left, so idle workers steal the rest.
+     */
+    private class ParseRangesTask extends RecursiveAction {
+        private final List<LogRange> ranges;
+        private final long maxChunkFootprint;
+        private final ObjLongConsumer<LogEntryStore> rangeConsumer;
+        private final int from;
+        private final int to;
+
+        private ParseRangesTask(List<LogRange> ranges, long maxChunkFootprint, ObjLongConsumer<LogEntryStore> rangeConsumer, int from, int to) {
+            this.ranges = ranges;
+            this.maxChunkFootprint = maxChunkFootprint;
+            this.rangeConsumer = rangeConsumer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ParseRangesTask(ranges, maxChunkFootprint, rangeConsumer, from, middle),
+                        new ParseRangesTask(ranges, maxChunkFootprint, rangeConsumer, middle, to)
+                );
+                return;
+            }
+            if (to == from) return;
+
+            LogRange range = ranges.get(from);
+            try {
+                if (range.isCompressed()) {
+                    parseStream(range.filePath, maxChunkFootprint, (store, chunk) -> acceptRange(store, (long) from << 32 | chunk));
+                } else {
+                    LogEntryStore store = new LogEntryStore(destinationHost, httpProtocol, dictionarySize);
+                    try (FileChannel channel = FileChannel.open(range.filePath, StandardOpenOption.READ)) {
+                        parseRange(channel, range.start, range.end, store);
+                    }
+
+                    acceptRange(store, (long) from << 32);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to parse " + range.filePath, e);
+            }
+        }
+
+        private void acceptRange(LogEntryStore store, long rangeKey) {
+            collectDictionaryStats(store);
+            rangeConsumer.accept(store, rangeKey);
+        }
+    }
+
+    private void collectDictionaryStats(LogEntryStore store) {
+        ByteStringTable[] tables = {store.getHosts(), store.getReferers(), store.getUserAgents()};
+
+        for (int i = 0; i < tables.length; i++) {
+            dictionaryStats.addAndGet(i * 3, tables[i].size());
+            dictionaryStats.addAndGet(i * 3 + 1, tables[i].getLookups());
+            dictionaryStats.addAndGet(i * 3 + 2, tables[i].getHits());
+        }
+    }
+
+    private void printDictionaryStats() {
+        String[] names = {"host", "referer", "user agent"};
+
+        for (int i = 0; i < names.length; i++) {
+            long lookups = dictionaryStats.get(i * 3 + 1);
+            if (lookups == 0) continue;
+
+            System.out.println(String.format(Locale.US, "Dictionary %s: %d values, hit ratio %.2f%%",
+                    names[i], dictionaryStats.get(i * 3), dictionaryStats.get(i * 3 + 2) * 100d / lookups));
+        }
+    }
+
+    private void printSkippedStats() {
+        long unsupportedMethods = unsupportedMethodCount.sum();
+        if (unsupportedMethods > 0) {
+            System.out.println("Lines skipped with unsupported HTTP method: " + unsupportedMethods + " (e.g. " + unsupportedMethodSample + ")");
+        }
+
+        long parseErrors = parseErrorCount.get();
+        if (parseErrors > 0) {
+            System.out.println("Lines skipped with parse errors: " + parseErrors);
+        }
+    }
+
+    private void parseRange(FileChannel channel, long start, long end, LogEntryStore store) throws IOException {
+        LineTokenizer tokenizer = new LineTokenizer(logFormat.getFieldCount());
+        TimestampDecoder timestampDecoder = timestampDecoders.get();
+        byte[] block = new byte[(int) Math.min(BLOCK_SIZE, Math.max(1, end - start))];
+        long position = start;
+        int filled = 0;
+
+        while (position < end) {
+            if (filled == block.length) {
+                block = Arrays.copyOf(block, block.length * 2);
+            }
+
+            int read = channel.read(ByteBuffer.wrap(block, filled, (int) Math.min(block.length - filled, end - position)), position);
+            if (read < 0) break;
+
+            position += read;
+            filled += read;
+
+            int linesEnd = lastIndexOf(block, (byte) '\n', filled) + 1;
+            if (linesEnd == 0) continue;
+
+            parseBlock(block, linesEnd, tokenizer, timestampDecoder, logFormat, store);
+
+            System.arraycopy(block, linesEnd, block, 0, filled - linesEnd);
+            filled -= linesEnd;
+        }
+
+        if (filled > 0) {
+            parseBlock(block, filled, tokenizer, timestampDecoder, logFormat, store);
+        }
+    }
+
+    /**
+     * Parses a whole decompressed stream, handing over a store whenever its footprint reaches {@code maxChunkFootprint}.
+     */
+    private void parseStream(Path filePath, long maxChunkFootprint, ObjIntConsumer<LogEntryStore> chunkConsumer) throws IOException {
+        LineTokenizer tokenizer = new LineTokenizer(logFormat.getFieldCount());
+        TimestampDecoder timestampDecoder = timestampDecoders.get();
+        LogEntryStore store = new LogEntryStore(destinationHost, httpProtocol, dictionarySize);
+        byte[] block = new byte[BLOCK_SIZE];
+        int filled = 0;
+        int chunk = 0;
+
+        try (InputStream inputStream = LogFiles.open(filePath)) {
+            while (true) {
+                if (filled == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+
+                int read = readFully(inputStream, block, filled);
+                if (read == 0) break;
+
+                filled += read;
+
+                int linesEnd = lastIndexOf(block, (byte) '\n', filled) + 1;
+                if (linesEnd == 0) continue;
+
+                parseBlock(block, linesEnd, tokenizer, timestampDecoder, logFormat, store);
+
+                System.arraycopy(block, linesEnd, block, 0, filled - linesEnd);
+                filled -= linesEnd;
+
+                if (store.getMemoryFootprint() >= maxChunkFootprint) {
+                    chunkConsumer.accept(store, chunk++);
+                    store = new LogEntryStore(destinationHost, httpProtocol, dictionarySize);
+                }
+            }
+
+            if (filled > 0) {
+                parseBlock(block, filled, tokenizer, timestampDecoder, logFormat, store);
+            }
+        }
+
+        chunkConsumer.accept(store, chunk);
+    }
+
+    /**
+     * Every file is read and decompressed on its own thread and parsed by its own executor into its own reorder buffer,
+     * the buffers are merged in time order during replay.
+     */
+    private void startStreamingParser() {
+        Thread parserThread = new Thread(() -> {
+            System.out.println("Start parsing logs, files: " + filePaths.size());
+            List<Thread> readerThreads = new ArrayList<>(filePaths.size());
+
+            for (int i = 0; i < filePaths.size(); i++) {
+                Path filePath = filePaths.get(i);
+                ReorderBuffer reorderBuffer = reorderBuffers.get(i);
+
+                Thread readerThread = new Thread(() -> streamLog(filePath, reorderBuffer), "log-reader-" + readerThreads.size());
+                readerThread.setDaemon(true);
+                readerThread.start();
+                readerThreads.add(readerThread);
+            }
+
+            try {
+                for (Thread readerThread : readerThreads) readerThread.join();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            System.out.println("Parsing logs finished");
+            System.out.println("Count of parsed requests: " + parsedCount.get());
+            streamingStores.forEach(this::collectDictionaryStats);
+            printDictionaryStats();
+            printSkippedStats();
+            lineFilter.printStats();
+        }, "log-parser");
 
-        System.out.println("Sorting");
-        logEntries.sort(Comparator.comparing(LogEntry::getRequestTime));
+        parserThread.setDaemon(true);
+        parserThread.start();
+    }
+
+    private void streamLog(Path filePath, ReorderBuffer reorderBuffer) {
+        ThreadPoolExecutor executor = initRequestExecutor(Math.max(1, parserThreads / filePaths.size()));
+
+        try {
+            readLog(filePath, executor, logEntry -> {
+                try {
+                    reorderBuffer.put(logEntry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            });
+            shutDownExecutor(executor, Long.MAX_VALUE);
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            reorderBuffer.fail(e);
+        } finally {
+            reorderBuffer.close();
+        }
+    }
+
+    @Override
+    public boolean isSecondPrecision() {
+        return timestampDecoder.isSecondPrecision();
+    }
+
+    @Override
+    public long getParsedCount() {
+        return parsedCount.get();
+    }
+
+    /**
+     * Nothing is held open: log files are closed once parsed and spilled runs once merged.
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public long getOutOfOrderCount() {
+        long outOfOrderCount = 0;
+        if (streaming) {
+            for (ReorderBuffer reorderBuffer : reorderBuffers) outOfOrderCount += reorderBuffer.getOutOfOrderCount();
+        }
+
+        return outOfOrderCount;
+    }
+
+    private void readLog(Path filePath, ThreadPoolExecutor executor, Consumer<LogEntry> entryConsumer) throws RuntimeException {
+        try (InputStream inputStream = openTimeWindow(filePath)) {
+            fillLogEntries(inputStream, executor, logFormat, entryConsumer);
+        } catch (Exception e) {
+            LOGGER.error("An error occurred when parsing log: ", e);
+            throw new RuntimeException();
+        }
+    }
 
-        System.out.println("Set delay");
-        fillDelay();
+    private InputStream openTimeWindow(Path filePath) throws IOException {
+        if (!hasTimeWindow() || LogFiles.isCompressed(filePath)) return LogFiles.open(filePath);
 
-        System.out.println("Parsing logs finished");
-        System.out.println("Count of requests to execute: " + logEntries.size());
+        LogRange window = findTimeWindow(filePath);
+        return LogFiles.open(filePath, window.start, window.end);
     }
 
-    private void shutDownExecutor(){
+    private void shutDownExecutor(ThreadPoolExecutor executor, long timeoutSeconds) {
         executor.shutdown();
         try {
-            if (!executor.awaitTermination(120, TimeUnit.SECONDS)) {
+            if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
                 executor.shutdownNow();
                 LOGGER.error("Shutdown threads is to long:");
                 System.err.println();
@@ -115,99 +575,202 @@ public class LogParser {
         }
     }
 
-    private void fillLogEntries(CSVParser csvParser, LogFormat logFormat) {
-        for (CSVRecord csvRecord : csvParser) {
-            executor.execute(() -> {
-                try {
-                    String dateString = getValueFromRow(csvRecord, logFormat.getRequestTimeFieldData());
-                    if (dateString == null) return;
+    private void fillLogEntries(InputStream inputStream, ThreadPoolExecutor executor, LogFormat logFormat, Consumer<LogEntry> entryConsumer) throws IOException, InterruptedException {
+        ThreadLocal<LineTokenizer> tokenizers = ThreadLocal.withInitial(() -> new LineTokenizer(logFormat.getFieldCount()));
+        ThreadLocal<LogEntryStore> stores = ThreadLocal.withInitial(() -> {
+            LogEntryStore store = new LogEntryStore(destinationHost, httpProtocol, dictionarySize);
+            streamingStores.add(store);
+
+            return store;
+        });
+        int blocksCount = executor.getCorePoolSize() * 2 + 2;
+        BlockingQueue<byte[]> freeBlocks = new ArrayBlockingQueue<>(blocksCount);
+        for (int i = 0; i < blocksCount; i++) {
+            freeBlocks.add(new byte[BLOCK_SIZE]);
+        }
 
-                    long requestTime = ZonedDateTime.parse(dateString, dateFormat).toInstant().getEpochSecond();
-                    if (startTimestamp != null && requestTime < startTimestamp) return;
+        byte[] block = freeBlocks.take();
+        int filled = 0;
 
-                    String request = getValueFromRow(csvRecord, logFormat.getRequestUrlFieldData());
+        while (true) {
+            if (filled == block.length) {
+                block = Arrays.copyOf(block, block.length * 2);
+            }
 
-                    if (request == null || (request.split(" ").length < 2)) {
-                        return;
-                    }
+            int read = readFully(inputStream, block, filled);
+            filled += read;
 
-                    String[] requestParts = request.split(" ");
-                    String method = requestParts[0];
-                    String endpoint = requestParts[1];
+            if (read == 0) break;
 
-                    if (method.equals("UNKOWN") || method.equals("UNKNOWN")) {
-                        return;
-                    }
+            int linesEnd = lastIndexOf(block, (byte) '\n', filled) + 1;
+            if (linesEnd == 0) continue;
 
-                    Integer statusCode = getIntegerValue(getValueFromRow(csvRecord, logFormat.getStatusCodeFieldData()));
-                    Float responseTime = getFloatValue(getValueFromRow(csvRecord, logFormat.getResponseTimeFieldData()));
+            byte[] nextBlock = freeBlocks.take();
+            int remainder = filled - linesEnd;
+            if (remainder > nextBlock.length) {
+                nextBlock = new byte[block.length];
+            }
+            System.arraycopy(block, linesEnd, nextBlock, 0, remainder);
 
-                    String destinationHost;
-                    if (this.destinationHost != null) destinationHost = this.destinationHost;
-                    else destinationHost = getValueFromRow(csvRecord, logFormat.getDestinationHostFieldData());
+            submitBlock(executor, block, linesEnd, freeBlocks, tokenizers, stores, logFormat, entryConsumer);
+            block = nextBlock;
+            filled = remainder;
+        }
 
-                    if (!destinationHost.contains("https://") && !destinationHost.contains("http://")) {
-                        destinationHost = httpProtocol + "://" + destinationHost;
-                    }
+        if (filled > 0) {
+            submitBlock(executor, block, filled, freeBlocks, tokenizers, stores, logFormat, entryConsumer);
+        }
+    }
+
+    private void submitBlock(ThreadPoolExecutor executor, byte[] block, int length, BlockingQueue<byte[]> freeBlocks, ThreadLocal<LineTokenizer> tokenizers, ThreadLocal<LogEntryStore> stores, LogFormat logFormat, Consumer<LogEntry> entryConsumer) {
+        executor.execute(() -> {
+            LogEntryStore store = stores.get();
+            try {
+                parseBlock(block, length, tokenizers.get(), timestampDecoders.get(), logFormat, store);
+
+                for (int i = 0; i < store.size(); i++) {
+                    entryConsumer.accept(store.get(i));
+                }
+            } finally {
+                store.clear();
+                freeBlocks.offer(block);
+            }
+        });
+    }
 
-                    String refererHeader = getValueFromRow(csvRecord, logFormat.getRefererHeaderFieldData());
-                    String userAgentHeader = getValueFromRow(csvRecord, logFormat.getUserAgentHeaderFieldData());
-
-                    LogEntry logEntry = new LogEntry(
-                            requestTime,
-                            method,
-                            endpoint,
-                            statusCode,
-                            responseTime,
-                            destinationHost,
-                            refererHeader,
-                            userAgentHeader
-                    );
-
-                    logEntries.add(logEntry);
+    private void parseBlock(byte[] block, int length, LineTokenizer tokenizer, TimestampDecoder timestampDecoder, LogFormat logFormat, LogEntryStore store) {
+        int lineStart = 0;
+
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && block[lineEnd] != '\n') lineEnd++;
+
+            int end = lineEnd > lineStart && block[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (end > lineStart && lineFilter.acceptLine(block, lineStart, end)) {
+                try {
+                    tokenizer.tokenize(block, lineStart, end);
+
+                    if (parseLine(tokenizer, timestampDecoder, logFormat, store)) {
+                        parsedCount.incrementAndGet();
+                    }
                 } catch (Exception e) {
-                    LOGGER.error("An error occurred: ", e);
-                    throw new RuntimeException();
+                    // only the first failure gets a stack trace, the rest are counted for the summary
+                    if (parseErrorCount.incrementAndGet() == 1) LOGGER.error("An error occurred: ", e);
                 }
-            });
+            }
+
+            lineStart = lineEnd + 1;
         }
     }
 
-    private void fillDelay() {
-        long timeDiff = System.currentTimeMillis() - logEntries.get(0).getRequestTime();
-        long prevRespTime = System.currentTimeMillis();
+    private boolean parseLine(LineTokenizer tokenizer, TimestampDecoder timestampDecoder, LogFormat logFormat, LogEntryStore store) {
+        FieldData requestUrlFieldData = logFormat.getRequestUrlFieldData();
+        if (!tokenizer.hasValue(requestUrlFieldData)) return false;
+
+        int requestStart = tokenizer.getValueStart(requestUrlFieldData);
+        int requestEnd = tokenizer.getValueEnd(requestUrlFieldData);
+        int methodEnd = tokenizer.indexOf((byte) ' ', requestStart, requestEnd);
+        if (methodEnd < 0) return false;
 
-        for (LogEntry logEntry : logEntries) {
-            long delay = logEntry.getRequestTime() + timeDiff - prevRespTime;
+        int endpointEnd = tokenizer.indexOf((byte) ' ', methodEnd + 1, requestEnd);
+        if (endpointEnd < 0) endpointEnd = requestEnd;
 
-            logEntry.setDelay(delay);
-            prevRespTime = logEntry.getRequestTime() + timeDiff;
+        if (tokenizer.regionEquals(requestStart, methodEnd, "UNKOWN") || tokenizer.regionEquals(requestStart, methodEnd, "UNKNOWN")) {
+            return false;
         }
-    }
 
-    private static String getValueFromRow(CSVRecord csvRecord, FieldData fieldData) {
-        if (fieldData.getFieldId() == null) return null;
+        if (!lineFilter.acceptRequest(tokenizer, logFormat, requestStart, methodEnd, endpointEnd)) return false;
+
+        FieldData requestTimeFieldData = logFormat.getRequestTimeFieldData();
+        if (!tokenizer.hasValue(requestTimeFieldData)) return false;
+
+        long requestTime = timestampDecoder.decode(
+                tokenizer.getBuffer(),
+                tokenizer.getValueStart(requestTimeFieldData),
+                tokenizer.getValueEnd(requestTimeFieldData)
+        );
+        if (startTimestamp != null && requestTime < startTimestamp * 1000) return false;
+        if (endTimestamp != null && requestTime >= endTimestamp * 1000) return false;
+
+        if (!isHttpMethod(tokenizer, requestStart, methodEnd)) {
+            if (unsupportedMethodSample == null) unsupportedMethodSample = tokenizer.getString(requestStart, methodEnd);
+            unsupportedMethodCount.increment();
+            return false;
+        }
 
-        String valueFromRow = csvRecord.get(fieldData.getFieldId());
+        FieldData statusCodeFieldData = logFormat.getStatusCodeFieldData();
+        FieldData responseTimeFieldData = logFormat.getResponseTimeFieldData();
+        int statusCode = tokenizer.hasValue(statusCodeFieldData) ? tokenizer.getInt(statusCodeFieldData) : LogEntryStore.NULL_STATUS_CODE;
+        float responseTime = tokenizer.hasValue(responseTimeFieldData) ? tokenizer.getFloatValue(responseTimeFieldData) : Float.NaN;
 
-        if (valueFromRow == null) return null;
+        int hostId = LogEntryStore.NO_VALUE;
+        if (this.destinationHost == null) {
+            FieldData destinationHostFieldData = logFormat.getDestinationHostFieldData();
+            if (!tokenizer.hasValue(destinationHostFieldData)) return false;
 
-        if (valueFromRow.equals("-") || valueFromRow.isEmpty() || valueFromRow.equals(" ")) {
-            return null;
+            hostId = tokenizer.isEscaped(destinationHostFieldData)
+                    ? store.internHost(tokenizer.getString(destinationHostFieldData))
+                    : store.internHost(tokenizer.getBuffer(), tokenizer.getValueStart(destinationHostFieldData), tokenizer.getValueEnd(destinationHostFieldData));
         }
 
-        return fieldData.substringByFormat(valueFromRow);
+        FieldData refererFieldData = logFormat.getRefererHeaderFieldData();
+        int refererId = LogEntryStore.NO_VALUE;
+        if (tokenizer.hasValue(refererFieldData)) {
+            refererId = tokenizer.isEscaped(refererFieldData)
+                    ? store.internReferer(tokenizer.getString(refererFieldData))
+                    : store.internReferer(tokenizer.getBuffer(), tokenizer.getValueStart(refererFieldData), tokenizer.getValueEnd(refererFieldData));
+        }
+
+        FieldData userAgentFieldData = logFormat.getUserAgentHeaderFieldData();
+        int userAgentId = LogEntryStore.NO_VALUE;
+        if (tokenizer.hasValue(userAgentFieldData)) {
+            userAgentId = tokenizer.isEscaped(userAgentFieldData)
+                    ? store.internUserAgent(tokenizer.getString(userAgentFieldData))
+                    : store.internUserAgent(tokenizer.getBuffer(), tokenizer.getValueStart(userAgentFieldData), tokenizer.getValueEnd(userAgentFieldData));
+        }
+
+        store.add(
+                requestTime,
+                store.internMethod(tokenizer.getBuffer(), requestStart, methodEnd),
+                tokenizer.getBuffer(),
+                methodEnd + 1,
+                endpointEnd,
+                hostId,
+                refererId,
+                userAgentId,
+                statusCode,
+                responseTime
+        );
+
+        return true;
     }
 
-    private static Integer getIntegerValue(String stringValue) {
-        if (stringValue == null) return null;
+    private static boolean isHttpMethod(LineTokenizer tokenizer, int start, int end) {
+        for (String method : HTTP_METHODS) {
+            if (tokenizer.regionEquals(start, end, method)) return true;
+        }
 
-        return Integer.parseInt(stringValue);
+        return false;
     }
 
-    private static Float getFloatValue(String stringValue) {
-        if (stringValue == null) return null;
+    private static int readFully(InputStream inputStream, byte[] buffer, int offset) throws IOException {
+        int total = 0;
+
+        while (offset + total < buffer.length) {
+            int read = inputStream.read(buffer, offset + total, buffer.length - offset - total);
+            if (read < 0) break;
+
+            total += read;
+        }
+
+        return total;
+    }
+
+    private static int lastIndexOf(byte[] buffer, byte value, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == value) return i;
+        }
 
-        return Float.parseFloat(stringValue);
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.LogEntry;
+
+public interface LogSource {
+    /**
+     * Log entries in replay order.
+     */
+    Iterable<LogEntry> getLogEntries();
+
+    boolean isSecondPrecision();
+
+    long getOutOfOrderCount();
+
+    /**
+     * Count of log lines parsed into entries so far, 0 for sources that don't parse.
+     */
+    long getParsedCount();
+
+    /**
+     * Releases the files held open for the replay.
+     */
+    void close();
+}
@@ -0,0 +1,158 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded time-ordered buffer between the streaming parser and the replay loop.
+ * An entry is released once the newest parsed request time is at least {@code reorderWindow} ms ahead of it,
+ * so lines written slightly out of order by nginx are still replayed in time order.
+ * When the buffer is full the oldest entry is released early to keep the parser moving.
+ */
+public class ReorderBuffer implements Iterable<LogEntry> {
+    private final PriorityQueue<LogEntry> queue;
+    private final long reorderWindow;
+    private final int capacity;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    private final Condition notEmpty;
+    private long maxRequestTime;
+    private long lastReleasedTime;
+    private long outOfOrderCount;
+    private boolean closed;
+    private RuntimeException failure;
+
+    public ReorderBuffer(long reorderWindow, int capacity) {
+        this.queue = new PriorityQueue<>(Math.min(capacity, 1024), Comparator.comparingLong(LogEntry::getRequestTime));
+        this.reorderWindow = reorderWindow;
+        this.capacity = capacity;
+        this.lock = new ReentrantLock();
+        this.notFull = lock.newCondition();
+        this.notEmpty = lock.newCondition();
+        this.maxRequestTime = Long.MIN_VALUE;
+        this.lastReleasedTime = Long.MIN_VALUE;
+    }
+
+    public void put(LogEntry logEntry) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity && !closed) {
+                notFull.await();
+            }
+
+            if (closed) return;
+
+            queue.add(logEntry);
+            maxRequestTime = Math.max(maxRequestTime, logEntry.getRequestTime());
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void fail(RuntimeException e) {
+        lock.lock();
+        try {
+            failure = e;
+            closed = true;
+            queue.clear();
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LogEntry take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!isHeadReleasable()) {
+                notEmpty.await();
+            }
+
+            if (failure != null) throw failure;
+
+            LogEntry logEntry = queue.poll();
+            if (logEntry == null) return null;
+
+            if (logEntry.getRequestTime() < lastReleasedTime) {
+                outOfOrderCount++;
+            } else {
+                lastReleasedTime = logEntry.getRequestTime();
+            }
+
+            notFull.signal();
+            return logEntry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getOutOfOrderCount() {
+        lock.lock();
+        try {
+            return outOfOrderCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isHeadReleasable() {
+        if (closed) return true;
+
+        LogEntry head = queue.peek();
+        if (head == null) return false;
+
+        return queue.size() >= capacity || head.getRequestTime() <= maxRequestTime - reorderWindow;
+    }
+
+    @Override
+    public Iterator<LogEntry> iterator() {
+        return new Iterator<LogEntry>() {
+            private LogEntry next;
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) return true;
+                if (finished) return false;
+
+                try {
+                    next = take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+
+                finished = next == null;
+                return !finished;
+            }
+
+            @Override
+            public LogEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                LogEntry logEntry = next;
+                next = null;
+                return logEntry;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.hum.logparsing;
+
+/**
+ * Stable sort of entry indexes by request time, tuned for nearly time-ordered input such as an nginx log:
+ * insertion-sorted short runs, then bottom-up merges that are skipped when two runs are already in order.
+ */
+final class RunSorter {
+    private static final int INSERTION_SORT_RUN = 32;
+
+    private RunSorter() {
+    }
+
+    static int[] sort(LogEntryStore store) {
+        int size = store.size();
+        int[] order = new int[size];
+        boolean sorted = true;
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            if (sorted && i > 0 && store.getRequestTime(i - 1) > store.getRequestTime(i)) sorted = false;
+        }
+
+        if (sorted) return order;
+
+        for (int start = 0; start < size; start += INSERTION_SORT_RUN) {
+            insertionSort(store, order, start, Math.min(start + INSERTION_SORT_RUN, size));
+        }
+
+        int[] source = order;
+        int[] target = new int[size];
+        for (int width = INSERTION_SORT_RUN; width < size; width *= 2) {
+            for (int start = 0; start < size; start += width * 2) {
+                merge(store, source, target, start, Math.min(start + width, size), Math.min(start + width * 2, size));
+            }
+
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+
+        return source;
+    }
+
+    private static void insertionSort(LogEntryStore store, int[] order, int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            int index = order[i];
+            long requestTime = store.getRequestTime(index);
+
+            int j = i - 1;
+            while (j >= start && store.getRequestTime(order[j]) > requestTime) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = index;
+        }
+    }
+
+    private static void merge(LogEntryStore store, int[] source, int[] target, int start, int middle, int end) {
+        if (middle >= end || store.getRequestTime(source[middle - 1]) <= store.getRequestTime(source[middle])) {
+            System.arraycopy(source, start, target, start, end - start);
+            return;
+        }
+
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+            if (right >= end || (left < middle && store.getRequestTime(source[left]) <= store.getRequestTime(source[right]))) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads back a sorted run written by {@link LogEntryStore#spill(int[], Path)}, one entry at a time.
+ * The run file is deleted once it is read to the end.
+ */
+final class SpilledRun implements Iterator<LogEntry> {
+    static final int NO_STRING = -1;
+    static final int DEFINE_STRING = -2;
+    static final int INLINE_STRING = -3;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final Path runPath;
+    private final String destinationHost;
+    private final DataInputStream input;
+    private final List<String> methods = new ArrayList<>();
+    private final List<String> hosts = new ArrayList<>();
+    private final List<String> referers = new ArrayList<>();
+    private final List<String> userAgents = new ArrayList<>();
+    private byte[] bytes = new byte[256];
+    private LogEntry next;
+
+    SpilledRun(Path runPath, String destinationHost) throws RuntimeException {
+        this.runPath = runPath;
+        this.destinationHost = destinationHost;
+
+        try {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runPath), READ_BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open spilled run " + runPath, e);
+        }
+
+        this.next = read();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public LogEntry next() {
+        if (next == null) throw new NoSuchElementException();
+
+        LogEntry logEntry = next;
+        next = read();
+
+        return logEntry;
+    }
+
+    private LogEntry read() throws RuntimeException {
+        try {
+            long requestTime;
+            try {
+                requestTime = input.readLong();
+            } catch (EOFException e) {
+                close();
+                return null;
+            }
+
+            String method = readStringReference(methods);
+            String host = readStringReference(hosts);
+            String referer = readStringReference(referers);
+            String userAgent = readStringReference(userAgents);
+            int statusCode = input.readInt();
+            float responseTime = input.readFloat();
+            String endpoint = readString();
+
+            return new LogEntry(
+                    requestTime,
+                    method,
+                    endpoint,
+                    statusCode != LogEntryStore.NULL_STATUS_CODE ? statusCode : null,
+                    Float.isNaN(responseTime) ? null : responseTime,
+                    host != null ? host : destinationHost,
+                    referer,
+                    userAgent
+            );
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read spilled run " + runPath, e);
+        }
+    }
+
+    private String readStringReference(List<String> dictionary) throws IOException {
+        int reference = input.readInt();
+
+        switch (reference) {
+            case NO_STRING:
+                return null;
+            case INLINE_STRING:
+                return readString();
+            case DEFINE_STRING:
+                int id = input.readInt();
+                String value = readString();
+                while (dictionary.size() <= id) dictionary.add(null);
+                dictionary.set(id, value);
+                return value;
+            default:
+                return dictionary.get(reference);
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = input.readInt();
+        if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+
+        input.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void close() throws IOException {
+        input.close();
+        Files.deleteIfExists(runPath);
+    }
+}
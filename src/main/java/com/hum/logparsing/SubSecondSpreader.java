@@ -0,0 +1,101 @@
+package com.hum.logparsing;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Distributes requests of second-granularity logs inside their second, so a second's worth of requests
+ * is not fired as one burst. Works on a time-ordered stream and buffers one second of entries at a time. A second whose
+ * entries already carry milliseconds is left as it is.
+ */
+public class SubSecondSpreader implements Iterable<LogEntry> {
+    public enum Mode {
+        NONE,
+        EVEN,
+        RANDOM
+    }
+
+    private final Iterable<LogEntry> logEntries;
+    private final Mode mode;
+    private final Random random;
+
+    public SubSecondSpreader(Iterable<LogEntry> logEntries, Mode mode, long seed) {
+        this.logEntries = logEntries;
+        this.mode = mode;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public Iterator<LogEntry> iterator() {
+        Iterator<LogEntry> source = logEntries.iterator();
+
+        return new Iterator<LogEntry>() {
+            private final List<LogEntry> secondEntries = new ArrayList<>();
+            private LogEntry pending;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index < secondEntries.size()) return true;
+
+                fillNextSecond();
+                return !secondEntries.isEmpty();
+            }
+
+            @Override
+            public LogEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                return secondEntries.get(index++);
+            }
+
+            private void fillNextSecond() {
+                secondEntries.clear();
+                index = 0;
+
+                if (pending == null) {
+                    if (!source.hasNext()) return;
+                    pending = source.next();
+                }
+
+                long second = Math.floorDiv(pending.getRequestTime(), 1000);
+                secondEntries.add(pending);
+                pending = null;
+
+                while (source.hasNext()) {
+                    LogEntry logEntry = source.next();
+
+                    if (Math.floorDiv(logEntry.getRequestTime(), 1000) != second) {
+                        pending = logEntry;
+                        break;
+                    }
+                    secondEntries.add(logEntry);
+                }
+
+                spread(secondEntries, second * 1000);
+            }
+        };
+    }
+
+    private void spread(List<LogEntry> secondEntries, long secondStart) {
+        int size = secondEntries.size();
+        for (LogEntry logEntry : secondEntries) {
+            if (logEntry.getRequestTime() != secondStart) return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            long offset = mode == Mode.EVEN ? i * 1000L / size : random.nextInt(1000);
+            secondEntries.get(i).setRequestTime(secondStart + offset);
+        }
+
+        if (mode == Mode.RANDOM) {
+            secondEntries.sort(Comparator.comparingLong(LogEntry::getRequestTime));
+        }
+    }
+}
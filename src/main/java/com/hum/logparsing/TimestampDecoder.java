@@ -0,0 +1,225 @@
+package com.hum.logparsing;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decodes $requestTime values into epoch milliseconds.
+ * Consecutive log lines mostly share the same second, so the last decoded value is memoized and reused
+ * without touching java.time. The default nginx layout and $msec values additionally have hand-written parsers,
+ * any other pattern falls back to {@link DateTimeFormatter}.
+ * Instances keep per-call state and must not be shared between threads, copies share whether a decoded value had a
+ * fraction of a second.
+ */
+public class TimestampDecoder {
+    public static final String DEFAULT_PATTERN = "dd/MMM/yyyy:HH:mm:ss Z";
+    public static final String MSEC_PATTERN = "msec";
+    public static final String ISO8601_PATTERN = "iso8601";
+    private static final int DEFAULT_LENGTH = "07/Aug/2023:10:11:20 +0300".length();
+    private static final int DATE_LENGTH = "07/Aug/2023:".length();
+    private static final int ZONE_START = "07/Aug/2023:10:11:20".length();
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+
+    private final String pattern;
+    private final DateTimeFormatter formatter;
+    private final AtomicBoolean fractionSeen;
+    private byte[] lastValue;
+    private int lastValueLength;
+    private long lastEpochMilli;
+    private final byte[] lastDate;
+    private final byte[] lastZone;
+    private long lastDayStart;
+    private boolean hasLastDay;
+
+    public TimestampDecoder(String pattern) {
+        this(pattern, createFormatter(pattern), new AtomicBoolean());
+    }
+
+    private TimestampDecoder(String pattern, DateTimeFormatter formatter, AtomicBoolean fractionSeen) {
+        this.pattern = pattern;
+        this.formatter = formatter;
+        this.fractionSeen = fractionSeen;
+        this.lastValue = new byte[64];
+        this.lastValueLength = -1;
+        this.lastDate = new byte[DATE_LENGTH];
+        this.lastZone = new byte[DEFAULT_LENGTH - ZONE_START];
+    }
+
+    private static DateTimeFormatter createFormatter(String pattern) {
+        switch (pattern) {
+            case MSEC_PATTERN:
+                return null;
+            case ISO8601_PATTERN:
+                return DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+            default:
+                return DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH);
+        }
+    }
+
+    public TimestampDecoder copy() {
+        return new TimestampDecoder(pattern, formatter, fractionSeen);
+    }
+
+    /**
+     * Whether decoded values are whole seconds. Known from the pattern, except for iso8601 whose fraction is optional
+     * (nginx $time_iso8601 has none): it has second precision until a value with a fraction is decoded.
+     */
+    public boolean isSecondPrecision() {
+        if (ISO8601_PATTERN.equals(pattern)) return !fractionSeen.get();
+
+        return formatter != null && !pattern.contains("S");
+    }
+
+    public long decode(byte[] buffer, int start, int end) {
+        int length = end - start;
+
+        if (length == lastValueLength && regionEquals(buffer, start, lastValue, length)) {
+            return lastEpochMilli;
+        }
+
+        long epochMilli = -1;
+        if (formatter == null) {
+            epochMilli = decodeMsec(buffer, start, end);
+        } else if (length == DEFAULT_LENGTH && DEFAULT_PATTERN.equals(pattern)) {
+            long epochSecond = decodeDefault(buffer, start);
+            if (epochSecond >= 0) epochMilli = epochSecond * 1000;
+        }
+        if (epochMilli < 0) {
+            epochMilli = decodeFallback(new String(buffer, start, length, StandardCharsets.UTF_8));
+        }
+        if (epochMilli % 1000 != 0 && !fractionSeen.get()) fractionSeen.set(true);
+
+        if (length > lastValue.length) lastValue = new byte[length];
+        System.arraycopy(buffer, start, lastValue, 0, length);
+        lastValueLength = length;
+        lastEpochMilli = epochMilli;
+
+        return epochMilli;
+    }
+
+    private long decodeFallback(String value) {
+        if (formatter == null) {
+            return new BigDecimal(value).movePointRight(3).longValue();
+        }
+
+        return ZonedDateTime.parse(value, formatter).toInstant().toEpochMilli();
+    }
+
+    private static long decodeMsec(byte[] buffer, int start, int end) {
+        long seconds = 0;
+        int i = start;
+
+        while (i < end && buffer[i] != '.') {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || i - start >= 12) return -1;
+
+            seconds = seconds * 10 + digit;
+            i++;
+        }
+        if (i == start) return -1;
+
+        long millis = 0;
+        int fractionDigits = 0;
+        for (i++; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+
+            if (fractionDigits < 3) {
+                millis = millis * 10 + digit;
+                fractionDigits++;
+            }
+        }
+        for (; fractionDigits < 3; fractionDigits++) {
+            millis *= 10;
+        }
+
+        return seconds * 1000 + millis;
+    }
+
+    private long decodeDefault(byte[] buffer, int start) {
+        int hours = digits(buffer, start + 12, 2);
+        int minutes = digits(buffer, start + 15, 2);
+        int seconds = digits(buffer, start + 18, 2);
+        if (hours < 0 || minutes < 0 || seconds < 0 || buffer[start + 11] != ':' || buffer[start + 14] != ':' || buffer[start + 17] != ':') {
+            return -1;
+        }
+
+        if (!hasLastDay
+                || !regionEquals(buffer, start, lastDate, DATE_LENGTH)
+                || !regionEquals(buffer, start + ZONE_START, lastZone, lastZone.length)) {
+            long dayStart = decodeDayStart(buffer, start);
+            if (dayStart == Long.MIN_VALUE) return -1;
+
+            System.arraycopy(buffer, start, lastDate, 0, DATE_LENGTH);
+            System.arraycopy(buffer, start + ZONE_START, lastZone, 0, lastZone.length);
+            lastDayStart = dayStart;
+            hasLastDay = true;
+        }
+
+        return lastDayStart + hours * 3600L + minutes * 60L + seconds;
+    }
+
+    private static long decodeDayStart(byte[] buffer, int start) {
+        int day = digits(buffer, start, 2);
+        int month = month(buffer, start + 3);
+        int year = digits(buffer, start + 7, 4);
+        if (day < 1 || month < 1 || year < 0 || buffer[start + 2] != '/' || buffer[start + 6] != '/') {
+            return Long.MIN_VALUE;
+        }
+
+        int zoneStart = start + ZONE_START;
+        byte sign = buffer[zoneStart + 1];
+        int zoneHours = digits(buffer, zoneStart + 2, 2);
+        int zoneMinutes = digits(buffer, zoneStart + 4, 2);
+        if (buffer[zoneStart] != ' ' || (sign != '+' && sign != '-') || zoneHours < 0 || zoneMinutes < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        int offsetSeconds = (zoneHours * 3600 + zoneMinutes * 60) * (sign == '-' ? -1 : 1);
+
+        try {
+            return LocalDate.of(year, month, day).toEpochDay() * 86400L - offsetSeconds;
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static int month(byte[] buffer, int start) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            String month = MONTHS[i];
+            if ((buffer[start] | 0x20) == month.charAt(0)
+                    && (buffer[start + 1] | 0x20) == month.charAt(1)
+                    && (buffer[start + 2] | 0x20) == month.charAt(2)) {
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int digits(byte[] buffer, int start, int count) {
+        int value = 0;
+
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    private static boolean regionEquals(byte[] buffer, int start, byte[] cached, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != cached[i]) return false;
+        }
+
+        return true;
+    }
+}
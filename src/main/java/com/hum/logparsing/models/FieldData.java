@@ -5,6 +5,7 @@ public class FieldData {
     private String fieldFormat;
     private Integer fieldId;
     private int startIndex;
+    private int suffixLength;
 
     public FieldData(String fieldVar) {
         this.fieldVar = fieldVar;
@@ -26,11 +27,15 @@ public class FieldData {
         if (startIndex == -1) {
             throw new IllegalArgumentException("Format string does not contain " + fieldVar);
         }
+
+        this.suffixLength = this.fieldFormat.length() - (startIndex + fieldVar.length());
     }
 
-    public String substringByFormat(String value) {
-        int endIndex = value.length() - (fieldFormat.length() - (startIndex + fieldVar.length()));
+    public int getPrefixLength() {
+        return startIndex;
+    }
 
-        return value.substring(startIndex, endIndex);
+    public int getSuffixLength() {
+        return suffixLength;
     }
 }
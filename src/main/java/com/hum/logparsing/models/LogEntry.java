@@ -6,12 +6,14 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 public class LogEntry {
-    private final long requestTime;
+    private long requestTime;
+    private final String method;
     private final String endpoint;
-    private final HttpRequestBase httpRequestBase;
+    private final String destinationHost;
+    private final String refererHeader;
+    private final String userAgentHeader;
     private final Integer statusCode;
     private final Float responseTime;
-    private long delay;
 
     public LogEntry(
             long requestTime,
@@ -21,22 +23,46 @@ public class LogEntry {
             Float responseTime,
             String destinationHost,
             String refererHeader,
-            String userAgentHeader) throws RuntimeException {
-        this.requestTime = requestTime * 1000;
+            String userAgentHeader) {
+        this.requestTime = requestTime;
+        this.method = method;
         this.endpoint = endpoint;
-        this.httpRequestBase = createHttpRequest(method, destinationHost);
+        this.destinationHost = destinationHost;
+        this.refererHeader = refererHeader;
+        this.userAgentHeader = userAgentHeader;
         this.statusCode = statusCode;
         this.responseTime = responseTime;
+    }
 
-        if (refererHeader != null) this.httpRequestBase.setHeader("Referer", refererHeader);
-        if (userAgentHeader != null) this.httpRequestBase.setHeader("User-Agent", userAgentHeader);
+    public String getMethod() {
+        return method;
     }
 
     public String getEndpoint() {
         return endpoint;
     }
 
-    public HttpRequestBase getHttpRequestBase() {
+    public String getDestinationHost() {
+        return destinationHost;
+    }
+
+    public String getRefererHeader() {
+        return refererHeader;
+    }
+
+    public String getUserAgentHeader() {
+        return userAgentHeader;
+    }
+
+    /**
+     * Builds a new request on every call, so nothing request-sized is kept alive between parsing and sending.
+     */
+    public HttpRequestBase createHttpRequest() throws RuntimeException {
+        HttpRequestBase httpRequestBase = createHttpRequest(method, destinationHost);
+
+        if (refererHeader != null) httpRequestBase.setHeader("Referer", refererHeader);
+        if (userAgentHeader != null) httpRequestBase.setHeader("User-Agent", userAgentHeader);
+
         return httpRequestBase;
     }
 
@@ -44,6 +70,10 @@ public class LogEntry {
         return requestTime;
     }
 
+    public void setRequestTime(long requestTime) {
+        this.requestTime = requestTime;
+    }
+
     public Integer getStatusCode() {
         return statusCode;
     }
@@ -52,14 +82,6 @@ public class LogEntry {
         return responseTime;
     }
 
-    public long getDelay() {
-        return delay;
-    }
-
-    public void setDelay(long delay) {
-        this.delay = delay;
-    }
-
     private HttpRequestBase createHttpRequest(String method, String destinationHost) {
         URI uri = getUri(destinationHost + endpoint);
 
@@ -1,22 +1,26 @@
 package com.hum.logparsing.models;
 
 
-import org.apache.commons.csv.CSVRecord;
+import com.hum.logparsing.LineTokenizer;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
 public class LogFormat {
     private final FieldData requestTimeFieldData;
+    private final FieldData msecFieldData;
     private final FieldData requestUrlFieldData;
     private final FieldData statusCodeFieldData;
     private final FieldData responseTimeFieldData;
     private final FieldData destinationHostFieldData;
     private final FieldData refererHeaderFieldData;
     private final FieldData userAgentHeaderFieldData;
+    private int fieldCount;
 
-    public LogFormat(CSVRecord logFormatFields) {
+    public LogFormat(String logFormat) {
         requestTimeFieldData = new FieldData("$requestTime");
+        msecFieldData = new FieldData("$msec");
         requestUrlFieldData = new FieldData("$requestUrl");
         statusCodeFieldData = new FieldData("$statusCode");
         responseTimeFieldData = new FieldData("$responseTime");
@@ -24,11 +28,19 @@ public class LogFormat {
         refererHeaderFieldData = new FieldData("$refererHeader");
         userAgentHeaderFieldData = new FieldData("$userAgentHeader");
 
-        fillDataFields(logFormatFields);
+        fillDataFields(splitLogFormat(logFormat));
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
     }
 
     public FieldData getRequestTimeFieldData() {
-        return requestTimeFieldData;
+        return isMsecTime() ? msecFieldData : requestTimeFieldData;
+    }
+
+    public boolean isMsecTime() {
+        return msecFieldData.getFieldId() != null;
     }
 
     public FieldData getRequestUrlFieldData() {
@@ -55,9 +67,22 @@ public class LogFormat {
         return userAgentHeaderFieldData;
     }
 
-    private void fillDataFields(CSVRecord logFormatFields) {
+    private static String[] splitLogFormat(String logFormat) {
+        byte[] bytes = logFormat.getBytes(StandardCharsets.UTF_8);
+        LineTokenizer tokenizer = new LineTokenizer(bytes.length + 1);
+        String[] fields = new String[tokenizer.tokenize(bytes, 0, bytes.length)];
+
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = tokenizer.getField(i);
+        }
+
+        return fields;
+    }
+
+    private void fillDataFields(String[] logFormatFields) {
         List<FieldData> fieldDataArrayList = Arrays.asList(
                 requestTimeFieldData,
+                msecFieldData,
                 requestUrlFieldData,
                 statusCodeFieldData,
                 responseTimeFieldData,
@@ -66,10 +91,11 @@ public class LogFormat {
                 userAgentHeaderFieldData
         );
 
-        for (int i = 0; i < logFormatFields.size(); i++) {
+        for (int i = 0; i < logFormatFields.length; i++) {
             for (FieldData fieldData : fieldDataArrayList) {
-                if (logFormatFields.get(i).contains(fieldData.getFieldVar())) {
-                    fieldData.setFieldFormatAndId(logFormatFields.get(i), i);
+                if (logFormatFields[i].contains(fieldData.getFieldVar())) {
+                    fieldData.setFieldFormatAndId(logFormatFields[i], i);
+                    fieldCount = i + 1;
                     break;
                 }
             }
@@ -0,0 +1,178 @@
+package com.hum.metrics;
+
+import com.hum.logparsing.LogSource;
+import com.hum.requestexecutor.LateRequestPolicy;
+import com.hum.requestexecutor.LatencyRecorder;
+import com.hum.requestexecutor.RequestExecutor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import org.apache.http.pool.PoolStats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the replay metrics in the Prometheus text format on {@code /metrics}. Everything is read from the lock-free
+ * counters and the histograms collected by the metrics threads, so a scrape never blocks the replay.
+ */
+public class MetricsEndpoint {
+    private static final String PREFIX = "nginxrhythm_";
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999", "1"};
+
+    private final PipelineMetrics pipelineMetrics;
+    private final LatencyRecorder latencyRecorder;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public MetricsEndpoint(int port, PipelineMetrics pipelineMetrics, LatencyRecorder latencyRecorder) throws RuntimeException {
+        this.pipelineMetrics = pipelineMetrics;
+        this.latencyRecorder = latencyRecorder;
+
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start metrics endpoint on port " + port, e);
+        }
+
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext("/metrics", this::handle);
+        this.server.start();
+
+        System.out.println("Metrics endpoint: http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String scrape() {
+        StringBuilder text = new StringBuilder(8192);
+
+        counter(text, "requests_dispatched_total", "Requests handed to the engine by the scheduler", pipelineMetrics.getDispatchedCount());
+        counter(text, "requests_sent_total", "Requests started by the engine", pipelineMetrics.getSentCount());
+        counter(text, "request_errors_total", "Requests failed without a response", pipelineMetrics.getFailedCount());
+        gauge(text, "dispatched_requests_per_second", "Requests dispatched per second in the last metrics interval", pipelineMetrics.getDispatchRate());
+        gauge(text, "scheduled_requests_per_second", "Requests per second the log schedule asked for in the last metrics interval", pipelineMetrics.getScheduledRate());
+
+        gauge(text, "replay_log_time_seconds", "Logged time of the last dispatched request", pipelineMetrics.getLastRequestTime() / 1000d);
+        gauge(text, "replay_log_elapsed_seconds", "Log time replayed so far", pipelineMetrics.getLogElapsedMillis() / 1000d);
+        gauge(text, "replay_wall_elapsed_seconds", "Wall time since the replay started", pipelineMetrics.getWallElapsedMillis() / 1000d);
+
+        LogSource logSource = pipelineMetrics.getLogSource();
+        if (logSource != null) {
+            counter(text, "log_lines_parsed_total", "Log lines parsed into requests", logSource.getParsedCount());
+        }
+
+        RequestExecutor requestExecutor = pipelineMetrics.getRequestExecutor();
+        if (requestExecutor != null) {
+            gauge(text, "requests_queued", "Requests accepted by the engine and not started yet", requestExecutor.getQueuedCount());
+            gauge(text, "requests_in_flight", "Requests started and not completed yet", requestExecutor.getInFlightCount());
+            gauge(text, "concurrency_limit", "Request threads or in-flight limit of the engine", requestExecutor.getConcurrencyLimit());
+
+            LateRequestPolicy lateRequestPolicy = requestExecutor.getLateRequestPolicy();
+            if (lateRequestPolicy != null) {
+                header(text, "requests_by_lateness_total", "Requests by their start against the max lateness", "counter");
+                for (LateRequestPolicy.Outcome outcome : LateRequestPolicy.Outcome.values()) {
+                    sample(text, "requests_by_lateness_total", "outcome", outcome.name().toLowerCase(Locale.ROOT), lateRequestPolicy.getCount(outcome));
+                }
+            }
+
+            PoolStats poolStats = requestExecutor.getPoolStats();
+            if (poolStats != null) {
+                header(text, "pool_connections", "Connections of the HTTP client pool", "gauge");
+                sample(text, "pool_connections", "state", "leased", poolStats.getLeased());
+                sample(text, "pool_connections", "state", "available", poolStats.getAvailable());
+                sample(text, "pool_connections", "state", "pending", poolStats.getPending());
+                gauge(text, "pool_max_connections", "Connection limit of the HTTP client pool", poolStats.getMax());
+            }
+        }
+
+        summary(text, "dispatch_lag_seconds", "Time between the target time of a request and its dispatch", null, null, pipelineMetrics.getDispatchLag(), true);
+        summary(text, "send_lag_seconds", "Time between the target time of a request and its start", null, null, pipelineMetrics.getSendLag(), true);
+
+        String[] statusClasses = LatencyRecorder.getStatusClasses();
+        for (int i = 0; i < statusClasses.length; i++) {
+            summary(text, "ttfb_seconds", "Time to first byte from the intended send time", "class", statusClasses[i], latencyRecorder.getTtfbHistogram(i), i == 0);
+        }
+        for (int i = 0; i < statusClasses.length; i++) {
+            summary(text, "latency_seconds", "Total latency from the intended send time", "class", statusClasses[i], latencyRecorder.getTotalHistogram(i), i == 0);
+        }
+
+        return text.toString();
+    }
+
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        header(text, name, help, "counter");
+        text.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, double value) {
+        header(text, name, help, "gauge");
+        text.append(PREFIX).append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String label, String labelValue, double value) {
+        text.append(PREFIX).append(name).append('{').append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(format(value)).append('\n');
+    }
+
+    /**
+     * Summary of a histogram in microseconds, as seconds.
+     */
+    private static void summary(StringBuilder text, String name, String help, String label, String labelValue, Histogram histogram, boolean withHeader) {
+        if (withHeader) header(text, name, help, "summary");
+
+        String labels = label != null ? label + "=\"" + labelValue + "\"," : "";
+        for (String quantile : QUANTILES) {
+            double value = histogram.getTotalCount() > 0 ? histogram.getValueAtPercentile(Double.parseDouble(quantile) * 100) / 1e6 : Double.NaN;
+            text.append(PREFIX).append(name).append('{').append(labels).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(format(value)).append('\n');
+        }
+
+        String suffixLabels = label != null ? "{" + label + "=\"" + labelValue + "\"}" : "";
+        text.append(PREFIX).append(name).append("_sum").append(suffixLabels).append(' ')
+                .append(format(histogram.getMean() * histogram.getTotalCount() / 1e6)).append('\n');
+        text.append(PREFIX).append(name).append("_count").append(suffixLabels).append(' ')
+                .append(histogram.getTotalCount()).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+
+        return String.format(Locale.US, "%.6f", value);
+    }
+
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,367 @@
+package com.hum.metrics;
+
+import com.hum.logparsing.LogSource;
+import com.hum.requestexecutor.RequestExecutor;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.pool.PoolStats;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Internal state of the replay pipeline, to tell whether the tool or the target fell behind: how late requests were
+ * dispatched by the scheduler and started by the engine compared to their target time, the request queue, in-flight
+ * requests, connection pool, parser rate and GC. Events are recorded lock-free by the hot threads, gauges are sampled
+ * once per interval by a daemon thread that optionally prints a console line; totals are available at the end.
+ */
+public class PipelineMetrics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final int intervalSeconds;
+    private final Recorder dispatchLagRecorder;
+    private final Recorder sendLagRecorder;
+    private final Histogram dispatchLagHistogram;
+    private final Histogram sendLagHistogram;
+    private final LongAdder dispatchedCount;
+    private final LongAdder sentCount;
+    private final LongAdder failedCount;
+    private final GarbageCollectorMXBean[] garbageCollectors;
+    private ScheduledExecutorService sampleExecutor;
+    private LogSource logSource;
+    private RequestExecutor requestExecutor;
+    private volatile long startNanos;
+    private final AtomicLong firstRequestTime;
+    private final AtomicLong lastRequestTime;
+    private final AtomicLong lastTargetNanos;
+    private volatile double dispatchRate;
+    private volatile double scheduledRate;
+    private long lastSampleNanos;
+    private long lastSampleTargetNanos;
+    private long lastDispatchedCount;
+    private long lastParsedCount;
+    private long startGcCount;
+    private long startGcMillis;
+    private long lastGcCount;
+    private long lastGcMillis;
+    private int maxQueuedCount;
+    private int maxInFlightCount;
+    private int maxPendingConnections;
+    private int maxLeasedConnections;
+
+    /**
+     * @param intervalSeconds seconds between console lines, 0 to only sample gauges once per second for the summary
+     */
+    public PipelineMetrics(int intervalSeconds) {
+        if (intervalSeconds < 0) {
+            throw new IllegalArgumentException("Metrics interval must not be negative");
+        }
+
+        this.intervalSeconds = intervalSeconds;
+        this.firstRequestTime = new AtomicLong();
+        this.lastRequestTime = new AtomicLong();
+        this.lastTargetNanos = new AtomicLong(Long.MIN_VALUE);
+        this.dispatchLagRecorder = new Recorder(SIGNIFICANT_DIGITS);
+        this.sendLagRecorder = new Recorder(SIGNIFICANT_DIGITS);
+        this.dispatchLagHistogram = new Histogram(SIGNIFICANT_DIGITS);
+        this.sendLagHistogram = new Histogram(SIGNIFICANT_DIGITS);
+        this.dispatchedCount = new LongAdder();
+        this.sentCount = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+    }
+
+    /**
+     * Starts sampling the gauges of the log source and the request executor.
+     */
+    public synchronized void start(LogSource logSource, RequestExecutor requestExecutor) {
+        this.logSource = logSource;
+        this.requestExecutor = requestExecutor;
+        this.startNanos = System.nanoTime();
+        this.lastSampleNanos = startNanos;
+        this.lastSampleTargetNanos = startNanos;
+        this.lastParsedCount = logSource.getParsedCount();
+        this.startGcCount = lastGcCount = getGcCount();
+        this.startGcMillis = lastGcMillis = getGcMillis();
+
+        int sampleSeconds = Math.max(1, intervalSeconds);
+        this.sampleExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sampleExecutor.scheduleAtFixedRate(() -> sample(intervalSeconds > 0), sampleSeconds, sampleSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Called by the scheduler thread of every lane for every dispatched request. Lanes dispatch concurrently and not in
+     * a global order, so the first and last times are kept as the min and max over the lanes.
+     *
+     * @param requestTime logged time of the request
+     * @param targetNanos time the request was scheduled for
+     * @param lagNanos    time between the target time of the request and its hand-off to the engine
+     */
+    public void recordDispatch(long requestTime, long targetNanos, long lagNanos) {
+        if (firstRequestTime.get() == 0 || requestTime < firstRequestTime.get()) {
+            firstRequestTime.accumulateAndGet(requestTime, (first, time) -> first == 0 ? time : Math.min(first, time));
+        }
+        if (requestTime > lastRequestTime.get()) lastRequestTime.accumulateAndGet(requestTime, Math::max);
+        long lastTarget = lastTargetNanos.get();
+        if (laterNanos(lastTarget, targetNanos) != lastTarget) lastTargetNanos.accumulateAndGet(targetNanos, PipelineMetrics::laterNanos);
+
+        dispatchedCount.increment();
+        dispatchLagRecorder.recordValue(toMicros(lagNanos));
+    }
+
+    /**
+     * Called by the engine when a request is actually sent, includes the time spent queued behind busy workers.
+     *
+     * @param lagNanos time between the target time of the request and its start
+     */
+    public void recordSend(long lagNanos) {
+        sentCount.increment();
+        sendLagRecorder.recordValue(toMicros(lagNanos));
+    }
+
+    /**
+     * Called by the engine for requests that failed without a response.
+     */
+    public void recordFailure() {
+        failedCount.increment();
+    }
+
+    /**
+     * Later of two {@link System#nanoTime()} values, {@code Long.MIN_VALUE} stands for none.
+     */
+    private static long laterNanos(long first, long second) {
+        return first == Long.MIN_VALUE || second - first > 0 ? second : first;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private synchronized void sample(boolean print) {
+        if (requestExecutor == null) return;
+
+        long nowNanos = System.nanoTime();
+        Histogram dispatchLag = dispatchLagRecorder.getIntervalHistogram();
+        Histogram sendLag = sendLagRecorder.getIntervalHistogram();
+        dispatchLagHistogram.add(dispatchLag);
+        sendLagHistogram.add(sendLag);
+
+        int queuedCount = requestExecutor.getQueuedCount();
+        int inFlightCount = requestExecutor.getInFlightCount();
+        PoolStats poolStats = requestExecutor.getPoolStats();
+        maxQueuedCount = Math.max(maxQueuedCount, queuedCount);
+        maxInFlightCount = Math.max(maxInFlightCount, inFlightCount);
+        if (poolStats != null) {
+            maxPendingConnections = Math.max(maxPendingConnections, poolStats.getPending());
+            maxLeasedConnections = Math.max(maxLeasedConnections, poolStats.getLeased());
+        }
+
+        long dispatched = dispatchedCount.sum();
+        long parsed = logSource.getParsedCount();
+        long gcCount = getGcCount();
+        long gcMillis = getGcMillis();
+        long targetNanos = lastTargetNanos.get() != Long.MIN_VALUE ? lastTargetNanos.get() : lastSampleTargetNanos;
+        double seconds = Math.max(1, nowNanos - lastSampleNanos) / 1e9;
+
+        // the schedule asked for the requests dispatched in this interval within the span of their target times
+        dispatchRate = (dispatched - lastDispatchedCount) / seconds;
+        scheduledRate = targetNanos - lastSampleTargetNanos > 0
+                ? (dispatched - lastDispatchedCount) / ((targetNanos - lastSampleTargetNanos) / 1e9) : dispatchRate;
+
+        if (print) {
+            StringBuilder line = new StringBuilder(String.format(Locale.US,
+                    "Pipeline at %d s: dispatched %.1f of %.1f scheduled req/s, dispatch lag p50/p99/max %s ms, send lag p50/p99/max %s ms, queued %d, in flight %d of %d",
+                    TimeUnit.NANOSECONDS.toSeconds(nowNanos - startNanos),
+                    dispatchRate,
+                    scheduledRate,
+                    formatLag(dispatchLag),
+                    formatLag(sendLag),
+                    queuedCount,
+                    inFlightCount,
+                    requestExecutor.getConcurrencyLimit()));
+
+            if (poolStats != null) {
+                line.append(String.format(Locale.US, ", pool leased/available/pending %d/%d/%d of %d",
+                        poolStats.getLeased(), poolStats.getAvailable(), poolStats.getPending(), poolStats.getMax()));
+            }
+
+            line.append(String.format(Locale.US, ", parsed %.0f lines/s, gc %d in %d ms",
+                    (parsed - lastParsedCount) / seconds, gcCount - lastGcCount, gcMillis - lastGcMillis));
+            System.out.println(line);
+        }
+
+        lastSampleNanos = nowNanos;
+        lastSampleTargetNanos = targetNanos;
+        lastDispatchedCount = dispatched;
+        lastParsedCount = parsed;
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+    }
+
+    private static String formatLag(Histogram lag) {
+        if (lag.getTotalCount() == 0) return "-";
+
+        return String.format(Locale.US, "%.1f/%.1f/%.1f",
+                lag.getValueAtPercentile(50) / 1000d, lag.getValueAtPercentile(99) / 1000d, lag.getMaxValue() / 1000d);
+    }
+
+    private long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) count += Math.max(0, garbageCollector.getCollectionCount());
+
+        return count;
+    }
+
+    private long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) millis += Math.max(0, garbageCollector.getCollectionTime());
+
+        return millis;
+    }
+
+    /**
+     * Dispatch lag distribution up to the last sample in microseconds.
+     */
+    public synchronized Histogram getDispatchLag() {
+        return dispatchLagHistogram.copy();
+    }
+
+    /**
+     * Send lag distribution up to the last sample in microseconds.
+     */
+    public synchronized Histogram getSendLag() {
+        return sendLagHistogram.copy();
+    }
+
+    public long getDispatchedCount() {
+        return dispatchedCount.sum();
+    }
+
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Requests per second dispatched in the last interval.
+     */
+    public double getDispatchRate() {
+        return dispatchRate;
+    }
+
+    /**
+     * Requests per second the schedule asked for in the part of the log dispatched in the last interval,
+     * above the dispatch rate when the replay falls behind.
+     */
+    public double getScheduledRate() {
+        return scheduledRate;
+    }
+
+    /**
+     * Logged time of the last dispatched request, 0 before the first one.
+     */
+    public long getLastRequestTime() {
+        return lastRequestTime.get();
+    }
+
+    /**
+     * Log time replayed so far.
+     */
+    public long getLogElapsedMillis() {
+        return lastRequestTime.get() - firstRequestTime.get();
+    }
+
+    /**
+     * Wall time since the replay started.
+     */
+    public long getWallElapsedMillis() {
+        return startNanos != 0 ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) : 0;
+    }
+
+    /**
+     * Request executor being sampled, null before {@link #start(LogSource, RequestExecutor)}.
+     */
+    public synchronized RequestExecutor getRequestExecutor() {
+        return requestExecutor;
+    }
+
+    public synchronized LogSource getLogSource() {
+        return logSource;
+    }
+
+    public synchronized int getMaxQueuedCount() {
+        return maxQueuedCount;
+    }
+
+    public synchronized int getMaxInFlightCount() {
+        return maxInFlightCount;
+    }
+
+    public synchronized int getMaxPendingConnections() {
+        return maxPendingConnections;
+    }
+
+    public synchronized int getMaxLeasedConnections() {
+        return maxLeasedConnections;
+    }
+
+    public long getGcCountSinceStart() {
+        return getGcCount() - startGcCount;
+    }
+
+    public long getGcMillisSinceStart() {
+        return getGcMillis() - startGcMillis;
+    }
+
+    public void close() {
+        if (sampleExecutor == null) return;
+
+        sampleExecutor.shutdownNow();
+        sample(false);
+        printSummary();
+    }
+
+    private void printSummary() {
+        Histogram dispatchLag = getDispatchLag();
+        Histogram sendLag = getSendLag();
+        if (dispatchLag.getTotalCount() == 0) return;
+
+        System.out.println("Pipeline lag from target time, ms:");
+        System.out.println(String.format(Locale.US, "%-8s %10s %10s %10s %10s %10s %10s %10s",
+                "lag", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        printSummary("dispatch", dispatchLag);
+        printSummary("send", sendLag);
+
+        System.out.println(String.format(Locale.US,
+                "Max queued requests: %d, max in flight: %d, max leased connections: %d, max pending connections: %d, GC: %d in %d ms",
+                getMaxQueuedCount(), getMaxInFlightCount(), getMaxLeasedConnections(), getMaxPendingConnections(),
+                getGcCountSinceStart(), getGcMillisSinceStart()));
+    }
+
+    private static void printSummary(String lag, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) return;
+
+        System.out.println(String.format(Locale.US, "%-8s %10d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f",
+                lag,
+                histogram.getTotalCount(),
+                histogram.getMean() / 1000,
+                histogram.getValueAtPercentile(50) / 1000d,
+                histogram.getValueAtPercentile(90) / 1000d,
+                histogram.getValueAtPercentile(99) / 1000d,
+                histogram.getValueAtPercentile(99.9) / 1000d,
+                histogram.getMaxValue() / 1000d));
+    }
+}
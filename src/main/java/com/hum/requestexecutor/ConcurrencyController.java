@@ -0,0 +1,156 @@
+package com.hum.requestexecutor;
+
+import com.hum.requestexecutor.engines.RequestEngine;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resizes the concurrency of the request engine and the connection pool once per interval, so there are just enough
+ * request threads or in-flight slots to hold the schedule of the log.
+ * <ul>
+ * <li>Requests start late while every slot is busy and the target answers as fast as usual: the limit grows by half.</li>
+ * <li>The response time rises above its baseline: the target is saturated and more concurrency would only queue
+ * there, the limit shrinks by the gradient baseline / current response time, as in the gradient limiters, and by one
+ * at least.</li>
+ * <li>The peak of in-flight requests stays well below the limit: the idle capacity is released slowly.</li>
+ * </ul>
+ */
+public class ConcurrencyController {
+    private static final long INTERVAL_MILLIS = 1000;
+    private static final long LATE_START_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final double LATE_START_RATIO = 0.01;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double BASELINE_SMOOTHING = 0.05;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double IDLE_RATIO = 0.75;
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final LongAdder startCount;
+    private final LongAdder lateStartCount;
+    private final LongAdder rttMicros;
+    private final LongAdder rttCount;
+    private final AtomicInteger inFlightCount;
+    private final AtomicInteger peakInFlightCount;
+    private ScheduledExecutorService controlExecutor;
+    private RequestEngine requestEngine;
+    private ConnPoolControl<HttpRoute> connectionPool;
+    private double baselineRttMicros;
+
+    public ConcurrencyController(int minConcurrency, int maxConcurrency) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.startCount = new LongAdder();
+        this.lateStartCount = new LongAdder();
+        this.rttMicros = new LongAdder();
+        this.rttCount = new LongAdder();
+        this.inFlightCount = new AtomicInteger();
+        this.peakInFlightCount = new AtomicInteger();
+    }
+
+    /**
+     * Starts controlling the engine and its connection pool, the pool may be null.
+     */
+    public synchronized void start(RequestEngine requestEngine, ConnPoolControl<HttpRoute> connectionPool) {
+        this.requestEngine = requestEngine;
+        this.connectionPool = connectionPool;
+        apply(clamp(requestEngine.getConcurrencyLimit()));
+
+        this.controlExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "concurrency-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.controlExecutor.scheduleAtFixedRate(this::adjust, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param lagNanos time between the intended send time of the request and its start
+     */
+    public void onStart(long lagNanos) {
+        startCount.increment();
+        if (lagNanos > LATE_START_NANOS) lateStartCount.increment();
+
+        int inFlight = inFlightCount.incrementAndGet();
+        if (inFlight > peakInFlightCount.get()) peakInFlightCount.accumulateAndGet(inFlight, Math::max);
+    }
+
+    /**
+     * @param rttNanos time from the start of the request to the first byte of the response, negative if none came
+     */
+    public void onComplete(long rttNanos) {
+        inFlightCount.decrementAndGet();
+
+        if (rttNanos >= 0) {
+            rttMicros.add(TimeUnit.NANOSECONDS.toMicros(rttNanos));
+            rttCount.increment();
+        }
+    }
+
+    private synchronized void adjust() {
+        long starts = startCount.sumThenReset();
+        long lateStarts = lateStartCount.sumThenReset();
+        long rtts = rttCount.sumThenReset();
+        long rttSum = rttMicros.sumThenReset();
+        int peakInFlight = peakInFlightCount.getAndSet(inFlightCount.get());
+        if (starts == 0 && rtts == 0) return;
+
+        int limit = requestEngine.getConcurrencyLimit();
+        double rtt = rtts > 0 ? (double) rttSum / rtts : baselineRttMicros;
+        if (baselineRttMicros == 0 || rtt < baselineRttMicros) {
+            baselineRttMicros = rtt;
+        } else {
+            baselineRttMicros += (rtt - baselineRttMicros) * BASELINE_SMOOTHING;
+        }
+
+        double gradient = rtt > 0 ? Math.max(MIN_GRADIENT, Math.min(1, baselineRttMicros * RTT_TOLERANCE / rtt)) : 1;
+        boolean startingLate = lateStarts > starts * LATE_START_RATIO;
+        boolean saturated = peakInFlight >= limit || requestEngine.getQueuedCount() > 0;
+
+        int newLimit;
+        if (gradient < 1) {
+            newLimit = Math.min(limit - 1, (int) (limit * gradient + Math.sqrt(limit)));
+        } else if (startingLate && saturated) {
+            newLimit = limit + Math.max(1, limit / 2);
+        } else if (peakInFlight < limit * IDLE_RATIO) {
+            newLimit = Math.max(peakInFlight + (int) Math.ceil(Math.sqrt(peakInFlight)), limit - Math.max(1, limit / 10));
+        } else {
+            newLimit = limit;
+        }
+
+        newLimit = clamp(newLimit);
+        if (newLimit != limit) {
+            apply(newLimit);
+            System.out.println(String.format(Locale.US, "Concurrency limit %d -> %d: response time %.2f ms (baseline %.2f ms), started late %.1f%%, peak in flight %d",
+                    limit, newLimit, rtt / 1000, baselineRttMicros / 1000, starts > 0 ? 100d * lateStarts / starts : 0, peakInFlight));
+        }
+    }
+
+    private int clamp(int limit) {
+        return Math.max(minConcurrency, Math.min(maxConcurrency, limit));
+    }
+
+    private void apply(int limit) {
+        requestEngine.setConcurrencyLimit(limit);
+
+        if (connectionPool != null) {
+            connectionPool.setMaxTotal(limit + 1);
+            connectionPool.setDefaultMaxPerRoute(limit + 1);
+        }
+    }
+
+    public void close() {
+        if (controlExecutor != null) controlExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,184 @@
+package com.hum.requestexecutor;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deadline of every request: its intended send time plus the allowed lateness. The engines don't block the replay
+ * thread past the deadline of a request to admit it, and a request that didn't start before its deadline is dropped
+ * or sent anyway by the action. Every outcome is counted per endpoint (path without the query string).
+ */
+public class LateRequestPolicy {
+    public enum Action {
+        DROP,
+        SEND
+    }
+
+    public enum Outcome {
+        ON_TIME,
+        SENT_LATE,
+        DROPPED
+    }
+
+    private static final int MAX_ENDPOINTS = 10_000;
+    private static final String OTHER_ENDPOINTS = "(other)";
+    private static final int TOP_ENDPOINTS = 10;
+
+    private final Action action;
+    private final long maxLatenessNanos;
+    private final LongAdder[] totalCounts;
+    private final Map<String, LongAdder[]> endpointCounts;
+
+    public LateRequestPolicy(Action action, int maxLatenessMillis) {
+        if (maxLatenessMillis < 0) {
+            throw new IllegalArgumentException("Max lateness must not be negative");
+        }
+
+        this.action = action;
+        this.maxLatenessNanos = TimeUnit.MILLISECONDS.toNanos(maxLatenessMillis);
+        this.totalCounts = newCounts();
+        this.endpointCounts = new ConcurrentHashMap<>();
+    }
+
+    private static LongAdder[] newCounts() {
+        LongAdder[] counts = new LongAdder[Outcome.values().length];
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+
+        return counts;
+    }
+
+    public long getDeadlineNanos(long intendedNanos) {
+        return intendedNanos + maxLatenessNanos;
+    }
+
+    /**
+     * Decides about a request starting now and counts the outcome.
+     *
+     * @return true to send the request
+     */
+    public boolean admit(LogEntry logEntry, long deadlineNanos) {
+        if (System.nanoTime() - deadlineNanos <= 0) {
+            record(logEntry, Outcome.ON_TIME);
+            return true;
+        }
+
+        return admitLate(logEntry);
+    }
+
+    /**
+     * Decides about a request that missed its deadline and counts the outcome.
+     *
+     * @return true to send the request anyway
+     */
+    public boolean admitLate(LogEntry logEntry) {
+        if (action == Action.SEND) {
+            record(logEntry, Outcome.SENT_LATE);
+            return true;
+        }
+
+        record(logEntry, Outcome.DROPPED);
+        return false;
+    }
+
+    /**
+     * Takes a permit of an in-flight limit for a request, waiting until its deadline at most.
+     *
+     * @return true if the permit was taken and the request is to be sent
+     */
+    public boolean acquire(Semaphore inFlight, LogEntry logEntry, long intendedNanos) throws InterruptedException {
+        long deadlineNanos = getDeadlineNanos(intendedNanos);
+
+        if (inFlight.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            if (admit(logEntry, deadlineNanos)) return true;
+
+            inFlight.release();
+            return false;
+        }
+
+        if (!admitLate(logEntry)) return false;
+
+        inFlight.acquire();
+        return true;
+    }
+
+    private void record(LogEntry logEntry, Outcome outcome) {
+        totalCounts[outcome.ordinal()].increment();
+        getEndpointCounts(logEntry.getEndpoint())[outcome.ordinal()].increment();
+    }
+
+    private LongAdder[] getEndpointCounts(String endpoint) {
+        int queryStart = endpoint.indexOf('?');
+        String path = queryStart >= 0 ? endpoint.substring(0, queryStart) : endpoint;
+
+        LongAdder[] counts = endpointCounts.get(path);
+        if (counts != null) return counts;
+
+        if (endpointCounts.size() >= MAX_ENDPOINTS) path = OTHER_ENDPOINTS;
+        return endpointCounts.computeIfAbsent(path, ignored -> newCounts());
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public long getCount(Outcome outcome) {
+        return totalCounts[outcome.ordinal()].sum();
+    }
+
+    /**
+     * Counts of an endpoint indexed by {@link Outcome#ordinal()}, null if no request of it was counted.
+     */
+    public long[] getCounts(String endpoint) {
+        LongAdder[] counts = endpointCounts.get(endpoint);
+        if (counts == null) return null;
+
+        long[] values = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) values[i] = counts[i].sum();
+
+        return values;
+    }
+
+    public void printSummary() {
+        long onTime = getCount(Outcome.ON_TIME);
+        long sentLate = getCount(Outcome.SENT_LATE);
+        long dropped = getCount(Outcome.DROPPED);
+        if (onTime + sentLate + dropped == 0) return;
+
+        System.out.println(String.format(Locale.US, "Late requests (max lateness %d ms, %s): on time %d, sent late %d, dropped %d, delivered %.2f%%",
+                TimeUnit.NANOSECONDS.toMillis(maxLatenessNanos), action.name().toLowerCase(Locale.ROOT), onTime, sentLate, dropped,
+                100d * (onTime + sentLate) / (onTime + sentLate + dropped)));
+        if (sentLate + dropped == 0) return;
+
+        List<Map.Entry<String, long[]>> endpoints = new ArrayList<>();
+        for (String endpoint : endpointCounts.keySet()) {
+            long[] counts = getCounts(endpoint);
+            if (counts[Outcome.SENT_LATE.ordinal()] + counts[Outcome.DROPPED.ordinal()] > 0) {
+                endpoints.add(new AbstractMap.SimpleImmutableEntry<>(endpoint, counts));
+            }
+        }
+        endpoints.sort((first, second) -> Long.compare(lateCount(second.getValue()), lateCount(first.getValue())));
+
+        System.out.println(String.format(Locale.US, "%10s %10s %10s  %s", "on time", "sent late", "dropped", "endpoint"));
+        for (Map.Entry<String, long[]> endpoint : endpoints.subList(0, Math.min(TOP_ENDPOINTS, endpoints.size()))) {
+            long[] counts = endpoint.getValue();
+            System.out.println(String.format(Locale.US, "%10d %10d %10d  %s",
+                    counts[Outcome.ON_TIME.ordinal()], counts[Outcome.SENT_LATE.ordinal()], counts[Outcome.DROPPED.ordinal()], endpoint.getKey()));
+        }
+        if (endpoints.size() > TOP_ENDPOINTS) {
+            System.out.println("... and " + (endpoints.size() - TOP_ENDPOINTS) + " more endpoints with late requests");
+        }
+    }
+
+    private static long lateCount(long[] counts) {
+        return counts[Outcome.SENT_LATE.ordinal()] + counts[Outcome.DROPPED.ordinal()];
+    }
+}
@@ -0,0 +1,181 @@
+package com.hum.requestexecutor;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free TTFB and total latency histograms, overall and per status class.
+ * Latencies are measured from the intended send time of a request, so time spent queued behind a busy executor
+ * is included instead of being hidden (coordinated omission).
+ */
+public class LatencyRecorder {
+    private static final String[] CLASSES = {"all", "1xx", "2xx", "3xx", "4xx", "5xx", "error"};
+    private static final int ALL = 0;
+    private static final int ERROR = CLASSES.length - 1;
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder[] ttfbRecorders;
+    private final Recorder[] totalRecorders;
+    private final Histogram[] ttfbHistograms;
+    private final Histogram[] totalHistograms;
+    private final HistogramLogWriter logWriter;
+    private final PrintStream logStream;
+    private final ScheduledExecutorService intervalExecutor;
+    private volatile Supplier<String> intervalComment;
+
+    public LatencyRecorder(Path latencyLogPath, int intervalSeconds) {
+        this.ttfbRecorders = new Recorder[CLASSES.length];
+        this.totalRecorders = new Recorder[CLASSES.length];
+        this.ttfbHistograms = new Histogram[CLASSES.length];
+        this.totalHistograms = new Histogram[CLASSES.length];
+
+        for (int i = 0; i < CLASSES.length; i++) {
+            ttfbRecorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+            totalRecorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+            ttfbHistograms[i] = new Histogram(SIGNIFICANT_DIGITS);
+            totalHistograms[i] = new Histogram(SIGNIFICANT_DIGITS);
+        }
+
+        if (latencyLogPath != null) {
+            try {
+                this.logStream = new PrintStream(latencyLogPath.toFile());
+            } catch (FileNotFoundException e) {
+                throw new RuntimeException("Failed to open latency log " + latencyLogPath, e);
+            }
+
+            long startMillis = System.currentTimeMillis();
+            this.logWriter = new HistogramLogWriter(logStream);
+            this.logWriter.outputComment("Latency in microseconds from intended send time");
+            this.logWriter.outputLogFormatVersion();
+            this.logWriter.outputStartTime(startMillis);
+            this.logWriter.setBaseTime(startMillis);
+            this.logWriter.outputLegend();
+        } else {
+            this.logStream = null;
+            this.logWriter = null;
+        }
+
+        this.intervalExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.intervalExecutor.scheduleAtFixedRate(this::collectInterval, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void recordResponse(int statusCode, long ttfbNanos, long totalNanos) {
+        int statusClass = statusCode >= 100 && statusCode < 600 ? statusCode / 100 : ERROR;
+
+        record(ttfbRecorders, statusClass, ttfbNanos);
+        record(totalRecorders, statusClass, totalNanos);
+    }
+
+    public void recordFailure(long totalNanos) {
+        record(totalRecorders, ERROR, totalNanos);
+    }
+
+    private static void record(Recorder[] recorders, int statusClass, long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+
+        recorders[ALL].recordValue(micros);
+        recorders[statusClass].recordValue(micros);
+    }
+
+    /**
+     * Comment written to the latency log before every interval, e.g. the active load factors.
+     */
+    public void setIntervalComment(Supplier<String> intervalComment) {
+        this.intervalComment = intervalComment;
+    }
+
+    private synchronized void collectInterval() {
+        Supplier<String> intervalComment = this.intervalComment;
+        if (logWriter != null && intervalComment != null) logWriter.outputComment(intervalComment.get());
+
+        collectInterval("ttfb", ttfbRecorders, ttfbHistograms);
+        collectInterval("total", totalRecorders, totalHistograms);
+
+        if (logStream != null) logStream.flush();
+    }
+
+    private void collectInterval(String metric, Recorder[] recorders, Histogram[] histograms) {
+        for (int i = 0; i < CLASSES.length; i++) {
+            Histogram interval = recorders[i].getIntervalHistogram();
+            histograms[i].add(interval);
+
+            if (logWriter != null && (i == ALL || interval.getTotalCount() > 0)) {
+                interval.setTag(metric + "." + CLASSES[i]);
+                logWriter.outputIntervalHistogram(interval);
+            }
+        }
+    }
+
+    public static String[] getStatusClasses() {
+        return CLASSES.clone();
+    }
+
+    /**
+     * TTFB histogram of a status class up to the last collected interval, in microseconds.
+     */
+    public synchronized Histogram getTtfbHistogram(int statusClass) {
+        return ttfbHistograms[statusClass].copy();
+    }
+
+    /**
+     * Total latency histogram of a status class up to the last collected interval, in microseconds.
+     */
+    public synchronized Histogram getTotalHistogram(int statusClass) {
+        return totalHistograms[statusClass].copy();
+    }
+
+    public void close() {
+        intervalExecutor.shutdownNow();
+
+        collectInterval();
+
+        if (logStream != null) logStream.close();
+
+        printSummary();
+    }
+
+    private void printSummary() {
+        if (totalHistograms[ALL].getTotalCount() == 0) return;
+
+        System.out.println("Latency from intended send time, ms:");
+        System.out.println(String.format(Locale.US, "%-6s %-6s %10s %10s %10s %10s %10s %10s %10s %10s",
+                "metric", "class", "count", "mean", "p50", "p90", "p99", "p99.9", "p99.99", "max"));
+
+        printSummary("ttfb", ttfbHistograms);
+        printSummary("total", totalHistograms);
+    }
+
+    private static void printSummary(String metric, Histogram[] histograms) {
+        for (int i = 0; i < CLASSES.length; i++) {
+            Histogram histogram = histograms[i];
+            if (histogram.getTotalCount() == 0) continue;
+
+            System.out.println(String.format(Locale.US, "%-6s %-6s %10d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f",
+                    metric,
+                    CLASSES[i],
+                    histogram.getTotalCount(),
+                    histogram.getMean() / 1000,
+                    histogram.getValueAtPercentile(50) / 1000d,
+                    histogram.getValueAtPercentile(90) / 1000d,
+                    histogram.getValueAtPercentile(99) / 1000d,
+                    histogram.getValueAtPercentile(99.9) / 1000d,
+                    histogram.getValueAtPercentile(99.99) / 1000d,
+                    histogram.getMaxValue() / 1000d
+            ));
+        }
+    }
+}
@@ -1,115 +1,113 @@
 package com.hum.requestexecutor;
 
-import java.io.IOException;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Locale;
-import java.util.concurrent.*;
-
 import com.hum.logparsing.models.LogEntry;
+import com.hum.requestexecutor.engines.RequestEngine;
 import com.hum.requestexecutor.models.RequestExecutorSetup;
-import com.hum.requestexecutor.models.TTFBResponseHandler;
-import org.apache.http.client.methods.*;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
 
+import java.util.List;
 
+/**
+ * Request engines of the replay lanes: every lane has its own engine, queue and connection pool, so lanes don't
+ * contend on shared locks. Gauges are summed over the lanes.
+ */
 public class RequestExecutor {
-    private static final Logger LOGGER = LogManager.getLogger(RequestExecutor.class);
-    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm:ss");
-    private final Integer scaleLoadWholePart;
-    private final Float fractionalPart;
-    private final boolean isScaleLoad;
-    private final boolean closeConnectionAfterFirstByte;
-    private final ThreadPoolExecutor requestExecutor;
-    private final CloseableHttpClient httpClient;
-
-    public RequestExecutor(RequestExecutorSetup requestExecutorSetup) {
-        this.scaleLoadWholePart = requestExecutorSetup.getScaleLoadWholePart();
-        this.fractionalPart = requestExecutorSetup.getFractionalPart();
-        this.isScaleLoad = requestExecutorSetup.isScaleLoad();
-        this.closeConnectionAfterFirstByte = requestExecutorSetup.isCloseConnectionAfterFirstByte();
-        this.requestExecutor = requestExecutorSetup.getRequestExecutor();
-        this.httpClient = requestExecutorSetup.getHttpClient();
+    private final RequestExecutorSetup[] lanes;
+    private final LateRequestPolicy lateRequestPolicy;
+
+    public RequestExecutor(List<RequestExecutorSetup> requestExecutorSetups) {
+        if (requestExecutorSetups.isEmpty()) {
+            throw new IllegalArgumentException("At least one request executor lane is required");
+        }
+
+        this.lanes = requestExecutorSetups.toArray(new RequestExecutorSetup[0]);
+        this.lateRequestPolicy = lanes[0].getLateRequestPolicy();
     }
 
-    public void executeRequest(LogEntry logEntry) throws RuntimeException {
-        if (isScaleLoad) {
-            for (int i = 0; i < scaleLoadWholePart; i++) sendRequest(logEntry);
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public void executeRequest(int lane, LogEntry logEntry, long intendedNanos) throws RuntimeException {
+        lanes[lane].getRequestEngine().send(logEntry, intendedNanos);
+    }
+
+    public int getQueuedCount() {
+        int queuedCount = 0;
+        for (RequestExecutorSetup lane : lanes) queuedCount += lane.getRequestEngine().getQueuedCount();
+
+        return queuedCount;
+    }
+
+    public int getInFlightCount() {
+        int inFlightCount = 0;
+        for (RequestExecutorSetup lane : lanes) inFlightCount += lane.getRequestEngine().getInFlightCount();
+
+        return inFlightCount;
+    }
 
-            if (Math.random() < fractionalPart) sendRequest(logEntry);
-        } else {
-            sendRequest(logEntry);
+    public int getConcurrencyLimit() {
+        int concurrencyLimit = 0;
+        for (RequestExecutorSetup lane : lanes) concurrencyLimit += lane.getRequestEngine().getConcurrencyLimit();
+
+        return concurrencyLimit;
+    }
+
+    /**
+     * Leased, available and pending connections of all routes and lanes.
+     */
+    public PoolStats getPoolStats() {
+        int leased = 0;
+        int pending = 0;
+        int available = 0;
+        int max = 0;
+        boolean pooled = false;
+
+        for (RequestExecutorSetup lane : lanes) {
+            ConnPoolControl<HttpRoute> connectionPool = lane.getConnectionPool();
+            if (connectionPool == null) continue;
+
+            PoolStats poolStats = connectionPool.getTotalStats();
+            leased += poolStats.getLeased();
+            pending += poolStats.getPending();
+            available += poolStats.getAvailable();
+            max += poolStats.getMax();
+            pooled = true;
         }
+
+        return pooled ? new PoolStats(leased, pending, available, max) : null;
     }
 
-    private void sendRequest(LogEntry logEntry) throws RuntimeException {
-        requestExecutor.execute(() -> {
-                    String timeNow = dateFormat.format(LocalDateTime.now());
-                    LocalDateTime originalTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(logEntry.getRequestTime()), ZoneId.systemDefault());
-                    long timeNowMills = System.currentTimeMillis();
-
-                    TTFBResponseHandler responseHandler = new TTFBResponseHandler(closeConnectionAfterFirstByte);
-                    try (CloseableHttpResponse ignored = httpClient.execute(logEntry.getHttpRequestBase(), responseHandler)) {
-                        LOGGER.info("{}\t{}\t{}\t{}\t{}\t{}\t{}",
-                                logEntry.getStatusCode(),
-                                responseHandler.getStatusCode(),
-                                dateFormat.format(originalTime),
-                                timeNow,
-                                logEntry.getResponseTime(),
-                                responseHandler.getTtfb(),
-                                logEntry.getEndpoint()
-                        );
-                    } catch (Exception e) {
-                        String logMessage = String.format(
-                                Locale.US,
-                                "%d\t%d\t%s\t%s\t%f\t%f\t%s",
-                                logEntry.getStatusCode(),
-                                0,
-                                dateFormat.format(originalTime),
-                                timeNow,
-                                logEntry.getResponseTime(),
-                                (float) (System.currentTimeMillis() - timeNowMills) / 1000,
-                                logEntry.getEndpoint()
-                        );
-
-                        LOGGER.error(
-                                String.format(
-                                        "Error executing request:%s%s%s",
-                                        System.lineSeparator(),
-                                        logMessage,
-                                        System.lineSeparator()
-                                ),
-                                e
-                        );
-
-                        LOGGER.info(logMessage);
-                        throw new RuntimeException();
-                    }
-                }
-        );
+    /**
+     * Null if every request is sent however late it is.
+     */
+    public LateRequestPolicy getLateRequestPolicy() {
+        return lateRequestPolicy;
     }
 
     public void shutDown() {
-        try {
-            requestExecutor.shutdown();
-            try {
-                if (!requestExecutor.awaitTermination(600, TimeUnit.SECONDS)) {
-                    requestExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                requestExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
+        for (RequestExecutorSetup lane : lanes) {
+            if (lane.getConcurrencyController() != null) {
+                lane.getConcurrencyController().close();
             }
-        } finally {
+        }
+
+        RuntimeException failure = null;
+        for (RequestExecutorSetup lane : lanes) {
+            RequestEngine requestEngine = lane.getRequestEngine();
             try {
-                httpClient.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                requestEngine.shutDown();
+            } catch (RuntimeException e) {
+                failure = e;
             }
         }
+
+        if (lateRequestPolicy != null) {
+            lateRequestPolicy.printSummary();
+        }
+
+        if (failure != null) throw failure;
     }
 }
@@ -0,0 +1,42 @@
+package com.hum.requestexecutor;
+
+import com.hum.logparsing.models.LogEntry;
+import com.hum.metrics.PipelineMetrics;
+import com.hum.requestexecutor.results.ResultWriter;
+
+public class ResultRecorder {
+    private final LatencyRecorder latencyRecorder;
+    private final ResultWriter resultWriter;
+    private final PipelineMetrics pipelineMetrics;
+    private final ConcurrencyController concurrencyController;
+
+    /**
+     * @param concurrencyController null if the concurrency is fixed
+     */
+    public ResultRecorder(LatencyRecorder latencyRecorder, ResultWriter resultWriter, PipelineMetrics pipelineMetrics, ConcurrencyController concurrencyController) {
+        this.latencyRecorder = latencyRecorder;
+        this.resultWriter = resultWriter;
+        this.pipelineMetrics = pipelineMetrics;
+        this.concurrencyController = concurrencyController;
+    }
+
+    public void recordStart(long intendedNanos) {
+        long lagNanos = System.nanoTime() - intendedNanos;
+
+        pipelineMetrics.recordSend(lagNanos);
+        if (concurrencyController != null) concurrencyController.onStart(lagNanos);
+    }
+
+    public void recordResponse(LogEntry logEntry, long intendedNanos, long startMillis, int statusCode, float ttfb, long firstByteNanos) {
+        if (concurrencyController != null) concurrencyController.onComplete((long) (ttfb * 1e9));
+        latencyRecorder.recordResponse(statusCode, firstByteNanos - intendedNanos, System.nanoTime() - intendedNanos);
+        resultWriter.write(logEntry, startMillis, statusCode, ttfb);
+    }
+
+    public void recordFailure(LogEntry logEntry, long intendedNanos, long startMillis, Throwable e) {
+        pipelineMetrics.recordFailure();
+        if (concurrencyController != null) concurrencyController.onComplete(-1);
+        latencyRecorder.recordFailure(System.nanoTime() - intendedNanos);
+        resultWriter.writeFailure(logEntry, startMillis, (float) (System.currentTimeMillis() - startMillis) / 1000, e);
+    }
+}
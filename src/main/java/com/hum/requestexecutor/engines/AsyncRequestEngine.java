@@ -0,0 +1,143 @@
+package com.hum.requestexecutor.engines;
+
+import com.hum.logparsing.models.LogEntry;
+import com.hum.requestexecutor.LateRequestPolicy;
+import com.hum.requestexecutor.ResultRecorder;
+import com.hum.requestexecutor.models.TTFBAsyncResponseConsumer;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncRequestEngine implements RequestEngine {
+    private final CloseableHttpAsyncClient httpAsyncClient;
+    private final ResultRecorder resultRecorder;
+    private final boolean closeConnectionAfterFirstByte;
+    private final InFlightLimit inFlight;
+    private final LateRequestPolicy lateRequestPolicy;
+
+    /**
+     * @param lateRequestPolicy null to wait for a free in-flight slot however long it takes
+     */
+    public AsyncRequestEngine(CloseableHttpAsyncClient httpAsyncClient, ResultRecorder resultRecorder, boolean closeConnectionAfterFirstByte, int maxInFlight, LateRequestPolicy lateRequestPolicy) {
+        this.httpAsyncClient = httpAsyncClient;
+        this.resultRecorder = resultRecorder;
+        this.closeConnectionAfterFirstByte = closeConnectionAfterFirstByte;
+        this.inFlight = new InFlightLimit(maxInFlight);
+        this.lateRequestPolicy = lateRequestPolicy;
+
+        this.httpAsyncClient.start();
+    }
+
+    @Override
+    public void send(LogEntry logEntry, long intendedNanos) throws RuntimeException {
+        try {
+            if (lateRequestPolicy == null) {
+                inFlight.acquire();
+            } else if (!lateRequestPolicy.acquire(inFlight, logEntry, intendedNanos)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        long startMillis = System.currentTimeMillis();
+        resultRecorder.recordStart(intendedNanos);
+        TTFBAsyncResponseConsumer responseConsumer = new TTFBAsyncResponseConsumer(closeConnectionAfterFirstByte);
+
+        try {
+            httpAsyncClient.execute(
+                    HttpAsyncMethods.create(logEntry.createHttpRequest()),
+                    responseConsumer,
+                    new FutureCallback<HttpResponse>() {
+                        @Override
+                        public void completed(HttpResponse httpResponse) {
+                            inFlight.release();
+                            recordResponse(logEntry, intendedNanos, startMillis, responseConsumer);
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            inFlight.release();
+                            if (closeConnectionAfterFirstByte && responseConsumer.getStatusCode() > 0) {
+                                recordResponse(logEntry, intendedNanos, startMillis, responseConsumer);
+                            } else {
+                                resultRecorder.recordFailure(logEntry, intendedNanos, startMillis, e);
+                            }
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            inFlight.release();
+                            resultRecorder.recordFailure(logEntry, intendedNanos, startMillis, new CancellationException());
+                        }
+                    }
+            );
+        } catch (RuntimeException e) {
+            inFlight.release();
+            resultRecorder.recordFailure(logEntry, intendedNanos, startMillis, e);
+            throw e;
+        }
+    }
+
+    private void recordResponse(LogEntry logEntry, long intendedNanos, long startMillis, TTFBAsyncResponseConsumer responseConsumer) {
+        resultRecorder.recordResponse(
+                logEntry,
+                intendedNanos,
+                startMillis,
+                responseConsumer.getStatusCode(),
+                responseConsumer.getTtfb(),
+                responseConsumer.getFirstByteNanos()
+        );
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return 0;
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return inFlight.getInFlightCount();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return inFlight.getLimit();
+    }
+
+    @Override
+    public void setConcurrencyLimit(int limit) {
+        inFlight.setLimit(limit);
+    }
+
+    @Override
+    public void shutDown() {
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(600);
+            int limit = inFlight.getLimit();
+            while (!inFlight.tryAcquire(limit, 1, TimeUnit.SECONDS)) {
+                if (!httpAsyncClient.isRunning() || System.nanoTime() > deadline) {
+                    System.err.println("Stopped waiting for in-flight requests: " + inFlight.getInFlightCount());
+                    limit = 0;
+                    break;
+                }
+            }
+            // the drained permits go back, so the in-flight gauge reads 0 after the shutdown
+            inFlight.release(limit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                httpAsyncClient.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.hum.requestexecutor.engines;
+
+import com.hum.logparsing.models.LogEntry;
+import com.hum.requestexecutor.LateRequestPolicy;
+import com.hum.requestexecutor.ResultRecorder;
+import com.hum.requestexecutor.models.TTFBResponseHandler;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class BlockingRequestEngine implements RequestEngine {
+    private final ExecutorService requestExecutor;
+    private final CloseableHttpClient httpClient;
+    private final ResultRecorder resultRecorder;
+    private final boolean closeConnectionAfterFirstByte;
+    protected final LateRequestPolicy lateRequestPolicy;
+
+    /**
+     * @param lateRequestPolicy null to queue every request by the queue policy of the executor
+     */
+    public BlockingRequestEngine(ExecutorService requestExecutor, CloseableHttpClient httpClient, ResultRecorder resultRecorder, boolean closeConnectionAfterFirstByte, LateRequestPolicy lateRequestPolicy) {
+        this.requestExecutor = requestExecutor;
+        this.httpClient = httpClient;
+        this.resultRecorder = resultRecorder;
+        this.closeConnectionAfterFirstByte = closeConnectionAfterFirstByte;
+        this.lateRequestPolicy = lateRequestPolicy;
+
+        if (lateRequestPolicy != null && requestExecutor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) requestExecutor).prestartAllCoreThreads();
+        }
+    }
+
+    @Override
+    public void send(LogEntry logEntry, long intendedNanos) throws RuntimeException {
+        if (lateRequestPolicy == null || !(requestExecutor instanceof ThreadPoolExecutor)) {
+            execute(() -> sendRequest(logEntry, intendedNanos));
+            return;
+        }
+
+        long deadlineNanos = lateRequestPolicy.getDeadlineNanos(intendedNanos);
+        Runnable task = () -> {
+            if (lateRequestPolicy.admit(logEntry, deadlineNanos)) sendRequest(logEntry, intendedNanos);
+        };
+
+        // the core threads are started, so the queue can be fed directly: a full queue holds the replay thread
+        // until the deadline of the request at most instead of running the request on it
+        BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) requestExecutor).getQueue();
+        try {
+            if (queue.offer(task, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) return;
+
+            if (lateRequestPolicy.getAction() == LateRequestPolicy.Action.SEND) {
+                queue.put(task);
+            } else {
+                lateRequestPolicy.admitLate(logEntry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected void execute(Runnable task) {
+        requestExecutor.execute(task);
+    }
+
+    protected void sendRequest(LogEntry logEntry, long intendedNanos) throws RuntimeException {
+        long startMillis = System.currentTimeMillis();
+        resultRecorder.recordStart(intendedNanos);
+
+        TTFBResponseHandler responseHandler = new TTFBResponseHandler(closeConnectionAfterFirstByte);
+        try (CloseableHttpResponse ignored = httpClient.execute(logEntry.createHttpRequest(), responseHandler)) {
+            resultRecorder.recordResponse(logEntry, intendedNanos, startMillis, responseHandler.getStatusCode(), responseHandler.getTtfb(), responseHandler.getFirstByteNanos());
+        } catch (Exception e) {
+            resultRecorder.recordFailure(logEntry, intendedNanos, startMillis, e);
+            throw new RuntimeException();
+        }
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return requestExecutor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) requestExecutor).getQueue().size() : 0;
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return requestExecutor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) requestExecutor).getActiveCount() : 0;
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return requestExecutor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) requestExecutor).getMaximumPoolSize() : 0;
+    }
+
+    /**
+     * Resizes the request threads, threads above a lower limit exit when they finish their request.
+     */
+    @Override
+    public void setConcurrencyLimit(int limit) {
+        if (!(requestExecutor instanceof ThreadPoolExecutor)) return;
+
+        ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) requestExecutor;
+        if (limit > threadPoolExecutor.getMaximumPoolSize()) {
+            threadPoolExecutor.setMaximumPoolSize(limit);
+            threadPoolExecutor.setCorePoolSize(limit);
+        } else {
+            threadPoolExecutor.setCorePoolSize(limit);
+            threadPoolExecutor.setMaximumPoolSize(limit);
+        }
+
+        if (lateRequestPolicy != null) threadPoolExecutor.prestartAllCoreThreads();
+    }
+
+    @Override
+    public void shutDown() {
+        try {
+            requestExecutor.shutdown();
+            try {
+                if (!requestExecutor.awaitTermination(600, TimeUnit.SECONDS)) {
+                    requestExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                requestExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
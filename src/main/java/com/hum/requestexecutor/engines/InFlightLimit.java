@@ -0,0 +1,34 @@
+package com.hum.requestexecutor.engines;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Semaphore of in-flight requests whose limit can be changed while requests hold permits: lowering it takes effect
+ * as the requests above the new limit complete.
+ */
+final class InFlightLimit extends Semaphore {
+    private volatile int limit;
+
+    InFlightLimit(int limit) {
+        super(limit);
+        this.limit = limit;
+    }
+
+    synchronized void setLimit(int limit) {
+        if (limit > this.limit) {
+            release(limit - this.limit);
+        } else if (limit < this.limit) {
+            reducePermits(this.limit - limit);
+        }
+
+        this.limit = limit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlightCount() {
+        return Math.max(0, limit - availablePermits());
+    }
+}
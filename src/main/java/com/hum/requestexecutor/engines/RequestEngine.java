@@ -0,0 +1,26 @@
+package com.hum.requestexecutor.engines;
+
+import com.hum.logparsing.models.LogEntry;
+
+public interface RequestEngine {
+    void send(LogEntry logEntry, long intendedNanos) throws RuntimeException;
+
+    /**
+     * Requests accepted but not started yet.
+     */
+    int getQueuedCount();
+
+    /**
+     * Requests started and not completed yet.
+     */
+    int getInFlightCount();
+
+    /**
+     * Count of requests the engine runs at the same time: request threads or the in-flight limit.
+     */
+    int getConcurrencyLimit();
+
+    void setConcurrencyLimit(int limit);
+
+    void shutDown();
+}
@@ -0,0 +1,7 @@
+package com.hum.requestexecutor.engines;
+
+public enum RequestEngineType {
+    BLOCKING,
+    ASYNC,
+    VIRTUAL
+}
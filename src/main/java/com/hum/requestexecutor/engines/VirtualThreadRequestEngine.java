@@ -0,0 +1,57 @@
+package com.hum.requestexecutor.engines;
+
+import com.hum.logparsing.models.LogEntry;
+import com.hum.requestexecutor.LateRequestPolicy;
+import com.hum.requestexecutor.ResultRecorder;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+public class VirtualThreadRequestEngine extends BlockingRequestEngine {
+    private final InFlightLimit inFlight;
+
+    public VirtualThreadRequestEngine(CloseableHttpClient httpClient, ResultRecorder resultRecorder, boolean closeConnectionAfterFirstByte, int maxInFlight, LateRequestPolicy lateRequestPolicy) {
+        super(VirtualThreads.newVirtualThreadPerTaskExecutor(), httpClient, resultRecorder, closeConnectionAfterFirstByte, lateRequestPolicy);
+        this.inFlight = new InFlightLimit(maxInFlight);
+    }
+
+    @Override
+    public void send(LogEntry logEntry, long intendedNanos) throws RuntimeException {
+        try {
+            if (lateRequestPolicy == null) {
+                inFlight.acquire();
+            } else if (!lateRequestPolicy.acquire(inFlight, logEntry, intendedNanos)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        try {
+            execute(() -> {
+                try {
+                    sendRequest(logEntry, intendedNanos);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return inFlight.getInFlightCount();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return inFlight.getLimit();
+    }
+
+    @Override
+    public void setConcurrencyLimit(int limit) {
+        inFlight.setLimit(limit);
+    }
+}
@@ -0,0 +1,20 @@
+package com.hum.requestexecutor.engines;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Java 8 variant: virtual threads are not available.
+ * The jar built on JDK 21+ also carries META-INF/versions/21 of this class, which is picked up on Java 21+ runtimes.
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return false;
+    }
+
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+}
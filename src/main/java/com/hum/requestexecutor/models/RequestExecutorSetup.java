@@ -1,37 +1,104 @@
 package com.hum.requestexecutor.models;
 
+import com.hum.metrics.PipelineMetrics;
+import com.hum.requestexecutor.ConcurrencyController;
+import com.hum.requestexecutor.LateRequestPolicy;
+import com.hum.requestexecutor.LatencyRecorder;
+import com.hum.requestexecutor.ResultRecorder;
+import com.hum.requestexecutor.engines.AsyncRequestEngine;
+import com.hum.requestexecutor.engines.BlockingRequestEngine;
+import com.hum.requestexecutor.engines.RequestEngine;
+import com.hum.requestexecutor.engines.RequestEngineType;
+import com.hum.requestexecutor.engines.VirtualThreadRequestEngine;
+import com.hum.requestexecutor.engines.VirtualThreads;
+import com.hum.requestexecutor.results.ResultWriter;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.ssl.AllowAllHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.pool.ConnPoolControl;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
-import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class RequestExecutorSetup {
-    private Integer scaleLoadWholePart;
-    private Float fractionalPart;
-    private boolean isScaleLoad;
     private final boolean closeConnectionAfterFirstByte;
-    private final ThreadPoolExecutor requestExecutor;
-    private final CloseableHttpClient httpClient;
+    private final ResultRecorder resultRecorder;
+    private final RequestEngine requestEngine;
+    private final LateRequestPolicy lateRequestPolicy;
+    private final ConcurrencyController concurrencyController;
+    private ConnPoolControl<HttpRoute> connectionPool;
 
-    public RequestExecutorSetup(Float scaleLoad, int requestThreads, int connectTimeout, int socketTimeout, boolean ignoreSsl, int queueCapacity, RejectedExecutionHandler queuePolicy, boolean closeConnectionAfterFirstByte) {
-        this.requestExecutor = initRequestExecutor(requestThreads, queueCapacity, queuePolicy);
-        this.httpClient = initHttpClient(requestThreads, connectTimeout, socketTimeout, ignoreSsl);
+    public RequestExecutorSetup(RequestEngineType engineType, int requestThreads, int maxInFlight, int connectTimeout, int socketTimeout, boolean ignoreSsl, int queueCapacity, RejectedExecutionHandler queuePolicy, LateRequestPolicy lateRequestPolicy, boolean adaptiveConcurrency, int minConcurrency, boolean closeConnectionAfterFirstByte, LatencyRecorder latencyRecorder, ResultWriter resultWriter, PipelineMetrics pipelineMetrics) {
         this.closeConnectionAfterFirstByte = closeConnectionAfterFirstByte;
+        this.lateRequestPolicy = lateRequestPolicy;
 
-        initScaleLoad(scaleLoad);
+        if (engineType == RequestEngineType.VIRTUAL && !VirtualThreads.isSupported()) {
+            System.err.println("Virtual threads are not supported by this JVM or build, falling back to the blocking engine");
+            engineType = RequestEngineType.BLOCKING;
+        }
+
+        // blocking threads never grow past requestThreads, maxInFlight only bounds the async and virtual engines
+        int maxConcurrency = engineType == RequestEngineType.BLOCKING ? requestThreads : maxInFlight;
+        this.concurrencyController = adaptiveConcurrency
+                ? new ConcurrencyController(minConcurrency, Math.max(maxConcurrency, minConcurrency))
+                : null;
+        this.resultRecorder = new ResultRecorder(latencyRecorder, resultWriter, pipelineMetrics, concurrencyController);
+
+        switch (engineType) {
+            case ASYNC:
+                this.requestEngine = new AsyncRequestEngine(
+                        initHttpAsyncClient(requestThreads, maxInFlight, connectTimeout, socketTimeout, ignoreSsl),
+                        resultRecorder,
+                        closeConnectionAfterFirstByte,
+                        maxInFlight,
+                        lateRequestPolicy
+                );
+                break;
+            case VIRTUAL:
+                this.requestEngine = new VirtualThreadRequestEngine(
+                        initHttpClient(maxInFlight, connectTimeout, socketTimeout, ignoreSsl),
+                        resultRecorder,
+                        closeConnectionAfterFirstByte,
+                        maxInFlight,
+                        lateRequestPolicy
+                );
+                break;
+            case BLOCKING:
+            default:
+                this.requestEngine = new BlockingRequestEngine(
+                        initRequestExecutor(requestThreads, queueCapacity, queuePolicy),
+                        initHttpClient(requestThreads + 1, connectTimeout, socketTimeout, ignoreSsl),
+                        resultRecorder,
+                        closeConnectionAfterFirstByte,
+                        lateRequestPolicy
+                );
+        }
+
+        if (concurrencyController != null) {
+            concurrencyController.start(requestEngine, connectionPool);
+        }
     }
 
     private ThreadPoolExecutor initRequestExecutor(int requestThreads, int queueCapacity, RejectedExecutionHandler queuePolicy) {
@@ -45,51 +112,30 @@ public class RequestExecutorSetup {
         );
     }
 
-    private CloseableHttpClient initHttpClient(int requestThreads, int connectTimeout, int socketTimeout, boolean ignoreSsl) {
+    private CloseableHttpClient initHttpClient(int maxConnections, int connectTimeout, int socketTimeout, boolean ignoreSsl) {
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(requestThreads + 1);
-        connectionManager.setDefaultMaxPerRoute(requestThreads + 1);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.connectionPool = connectionManager;
 
         return getHttpClient(connectTimeout, socketTimeout, ignoreSsl, connectionManager);
     }
 
-    private void initScaleLoad(Float scaleLoad) {
-        Optional<Float> optScaleLoad = Optional.ofNullable(scaleLoad);
-        this.isScaleLoad = optScaleLoad.isPresent();
-
-        this.scaleLoadWholePart = optScaleLoad.map(Float::intValue).orElse(null);
-        this.fractionalPart = optScaleLoad.map(sl -> sl - this.scaleLoadWholePart).orElse(null);
+    private RequestConfig getRequestConfig(int connectTimeout, int socketTimeout) {
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeout * 1000)
+                .setSocketTimeout(socketTimeout * 1000)
+                .build();
     }
 
     private CloseableHttpClient getHttpClient(int connectTimeout, int socketTimeout, boolean ignoreSsl, PoolingHttpClientConnectionManager connectionManager) {
         try {
-            RequestConfig requestConfig = RequestConfig.custom()
-                    .setConnectTimeout(connectTimeout * 1000)
-                    .setSocketTimeout(socketTimeout * 1000)
-                    .build();
-
             HttpClientBuilder httpClientBuilder = HttpClients.custom()
                     .setConnectionManager(connectionManager)
-                    .setDefaultRequestConfig(requestConfig);
+                    .setDefaultRequestConfig(getRequestConfig(connectTimeout, socketTimeout));
 
             if (ignoreSsl) {
-                SSLContext sslContext = SSLContext.getInstance("TLS");
-                TrustManager[] trustAllCertificates = new TrustManager[]{
-                        new X509TrustManager() {
-                            public X509Certificate[] getAcceptedIssuers() {
-                                return new X509Certificate[0];
-                            }
-
-                            public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                            }
-
-                            public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                            }
-                        }
-                };
-
-                sslContext.init(null, trustAllCertificates, new SecureRandom());
-                httpClientBuilder.setSslcontext(sslContext);
+                httpClientBuilder.setSslcontext(getTrustAllSslContext());
                 httpClientBuilder.setHostnameVerifier(new AllowAllHostnameVerifier());
             }
 
@@ -100,27 +146,80 @@ public class RequestExecutorSetup {
         }
     }
 
-    public Integer getScaleLoadWholePart() {
-        return scaleLoadWholePart;
-    }
+    private CloseableHttpAsyncClient initHttpAsyncClient(int ioThreads, int maxInFlight, int connectTimeout, int socketTimeout, boolean ignoreSsl) {
+        try {
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setIoThreadCount(ioThreads)
+                    .setConnectTimeout(connectTimeout * 1000)
+                    .setSoTimeout(socketTimeout * 1000)
+                    .build();
+            SchemeIOSessionStrategy sslStrategy = ignoreSsl
+                    ? new SSLIOSessionStrategy(getTrustAllSslContext(), NoopHostnameVerifier.INSTANCE)
+                    : SSLIOSessionStrategy.getDefaultStrategy();
+
+            PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig),
+                    RegistryBuilder.<SchemeIOSessionStrategy>create()
+                            .register("http", NoopIOSessionStrategy.INSTANCE)
+                            .register("https", sslStrategy)
+                            .build()
+            );
+            connectionManager.setMaxTotal(maxInFlight);
+            connectionManager.setDefaultMaxPerRoute(maxInFlight);
+            this.connectionPool = connectionManager;
+
+            HttpAsyncClientBuilder httpAsyncClientBuilder = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(getRequestConfig(connectTimeout, socketTimeout));
+
+            return httpAsyncClientBuilder.build();
 
-    public Float getFractionalPart() {
-        return fractionalPart;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create HttpAsyncClient", e);
+        }
     }
 
-    public boolean isScaleLoad() {
-        return isScaleLoad;
+    private SSLContext getTrustAllSslContext() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        TrustManager[] trustAllCertificates = new TrustManager[]{
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                    }
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                    }
+                }
+        };
+
+        sslContext.init(null, trustAllCertificates, new SecureRandom());
+        return sslContext;
     }
 
     public boolean isCloseConnectionAfterFirstByte() {
         return closeConnectionAfterFirstByte;
     }
 
-    public ThreadPoolExecutor getRequestExecutor() {
-        return requestExecutor;
+    public ResultRecorder getResultRecorder() {
+        return resultRecorder;
+    }
+
+    public RequestEngine getRequestEngine() {
+        return requestEngine;
+    }
+
+    public ConcurrencyController getConcurrencyController() {
+        return concurrencyController;
+    }
+
+    public LateRequestPolicy getLateRequestPolicy() {
+        return lateRequestPolicy;
     }
 
-    public CloseableHttpClient getHttpClient() {
-        return httpClient;
+    public ConnPoolControl<HttpRoute> getConnectionPool() {
+        return connectionPool;
     }
 }
@@ -0,0 +1,80 @@
+package com.hum.requestexecutor.models;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+public class TTFBAsyncResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+    private final boolean closeConnectionAfterFirstByte;
+    private final long startTime;
+    private final ByteBuffer discardBuffer;
+    private HttpResponse httpResponse;
+    private float ttfb;
+    private long firstByteNanos;
+    private int statusCode;
+
+    public TTFBAsyncResponseConsumer(boolean closeConnectionAfterFirstByte) {
+        this.closeConnectionAfterFirstByte = closeConnectionAfterFirstByte;
+        this.startTime = System.currentTimeMillis();
+        this.discardBuffer = ByteBuffer.allocate(8192);
+    }
+
+    public float getTtfb() {
+        return ttfb;
+    }
+
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isCloseConnectionAfterFirstByte() {
+        return closeConnectionAfterFirstByte;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse httpResponse) {
+        this.firstByteNanos = System.nanoTime();
+        this.httpResponse = httpResponse;
+        this.statusCode = httpResponse.getStatusLine().getStatusCode();
+        this.ttfb = (float) (System.currentTimeMillis() - this.startTime) / 1000;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        if (closeConnectionAfterFirstByte) {
+            ioControl.shutdown();
+            return;
+        }
+
+        // Cast keeps the Java 8 Buffer.clear() signature when compiled on newer JDKs
+        while (decoder.read(discardBuffer) > 0) {
+            ((Buffer) discardBuffer).clear();
+        }
+        ((Buffer) discardBuffer).clear();
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        return httpResponse;
+    }
+
+    @Override
+    protected void releaseResources() {
+    }
+}
@@ -9,6 +9,7 @@ public class TTFBResponseHandler implements ResponseHandler<CloseableHttpRespons
     private final boolean closeConnectionAfterFirstByte;
     private final long startTime;
     private float ttfb;
+    private long firstByteNanos;
     private int statusCode;
 
     public TTFBResponseHandler(boolean closeConnectionAfterFirstByte) {
@@ -20,12 +21,17 @@ public class TTFBResponseHandler implements ResponseHandler<CloseableHttpRespons
         return ttfb;
     }
 
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
 
     @Override
     public CloseableHttpResponse handleResponse(HttpResponse httpResponse) {
+        this.firstByteNanos = System.nanoTime();
         this.statusCode = httpResponse.getStatusLine().getStatusCode();
         this.ttfb = (float) (System.currentTimeMillis() - this.startTime) / 1000;
 
@@ -0,0 +1,97 @@
+package com.hum.requestexecutor.results;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a binary result file into the tab separated result layout.
+ * Usage: java -cp NginxRhythm.jar com.hum.requestexecutor.results.ResultConverter &lt;binary file&gt; [tsv file]
+ */
+public final class ResultConverter {
+    private ResultConverter() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ResultConverter <binary result file> [tsv result file, default: stdout]");
+            System.exit(1);
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(args[0])), 1 << 16));
+             Writer output = new BufferedWriter(new OutputStreamWriter(
+                     args.length == 2 ? Files.newOutputStream(Paths.get(args[1])) : System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            long count = convert(input, output);
+
+            if (args.length == 2) {
+                System.out.println("Converted results: " + count);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to convert " + args[0], e);
+        }
+    }
+
+    private static long convert(DataInputStream input, Writer output) throws IOException {
+        if (input.readInt() != ResultWriter.MAGIC || input.readShort() != ResultWriter.VERSION) {
+            throw new IOException("Not a binary result file");
+        }
+
+        ResultLineFormatter lineFormatter = new ResultLineFormatter();
+        List<String> endpoints = new ArrayList<>();
+        long count = 0;
+
+        while (true) {
+            int recordType;
+            try {
+                recordType = input.readByte();
+            } catch (EOFException e) {
+                return count;
+            }
+
+            if (recordType == ResultWriter.STRING_RECORD) {
+                int id = input.readInt();
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+
+                if (id == endpoints.size()) {
+                    endpoints.add(new String(bytes, StandardCharsets.UTF_8));
+                } else {
+                    endpoints.set(id, new String(bytes, StandardCharsets.UTF_8));
+                }
+            } else if (recordType == ResultWriter.RESULT_RECORD) {
+                int originalStatusCode = input.readInt();
+                int statusCode = input.readInt();
+                long originalTime = input.readLong();
+                long startMillis = input.readLong();
+                float responseTime = input.readFloat();
+                float ttfb = input.readFloat();
+                String endpoint = endpoints.get(input.readInt());
+                boolean failed = input.readBoolean();
+
+                output.write(lineFormatter.format(
+                        originalStatusCode != ResultWriter.NULL_STATUS_CODE ? originalStatusCode : null,
+                        statusCode,
+                        originalTime,
+                        startMillis,
+                        Float.isNaN(responseTime) ? null : responseTime,
+                        ttfb,
+                        endpoint,
+                        failed
+                ));
+                output.write(System.lineSeparator());
+                count++;
+            } else {
+                throw new IOException("Unknown record type " + recordType + " after " + count + " results");
+            }
+        }
+    }
+}
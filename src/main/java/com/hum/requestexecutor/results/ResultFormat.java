@@ -0,0 +1,6 @@
+package com.hum.requestexecutor.results;
+
+public enum ResultFormat {
+    TSV,
+    BINARY
+}
@@ -0,0 +1,50 @@
+package com.hum.requestexecutor.results;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formats results into the tab separated line layout of the result file. Not thread-safe.
+ */
+final class ResultLineFormatter {
+    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm:ss");
+    private final ZoneId zoneId = ZoneId.systemDefault();
+    private final StringBuilder line = new StringBuilder(256);
+    private final SecondCache originalTimeCache = new SecondCache();
+    private final SecondCache startTimeCache = new SecondCache();
+
+    String format(Integer originalStatusCode, int statusCode, long originalTime, long startMillis, Float responseTime, float ttfb, String endpoint, boolean failed) {
+        line.setLength(0);
+        line.append(originalStatusCode).append('\t')
+                .append(statusCode).append('\t')
+                .append(formatMillis(originalTimeCache, originalTime)).append('\t')
+                .append(formatMillis(startTimeCache, startMillis)).append('\t');
+
+        if (failed) {
+            line.append(responseTime != null ? String.format(Locale.US, "%f", responseTime) : "null").append('\t')
+                    .append(String.format(Locale.US, "%f", ttfb));
+        } else {
+            line.append(responseTime).append('\t').append(ttfb);
+        }
+
+        return line.append('\t').append(endpoint).toString();
+    }
+
+    private String formatMillis(SecondCache cache, long millis) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != cache.second) {
+            cache.date = dateFormat.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zoneId));
+            cache.second = second;
+        }
+
+        return cache.date;
+    }
+
+    private static final class SecondCache {
+        private long second = Long.MIN_VALUE;
+        private String date;
+    }
+}
@@ -0,0 +1,70 @@
+package com.hum.requestexecutor.results;
+
+import com.hum.logparsing.models.LogEntry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi-producer, single-consumer ring of preallocated slots.
+ * A producer claims a sequence, fills the slot in place and publishes the sequence for it; the consumer reads slots
+ * strictly in sequence order. When the ring is full producers park until the consumer frees a slot.
+ */
+final class ResultRingBuffer {
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ResultSlot[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    ResultRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        this.slots = new ResultSlot[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ResultSlot();
+            published.set(i, -1);
+        }
+    }
+
+    void publish(LogEntry logEntry, long startMillis, int statusCode, float ttfb, Throwable error) {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed.get() >= slots.length) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        int index = (int) sequence & mask;
+        ResultSlot slot = slots[index];
+        slot.logEntry = logEntry;
+        slot.startMillis = startMillis;
+        slot.statusCode = statusCode;
+        slot.ttfb = ttfb;
+        slot.error = error;
+
+        published.lazySet(index, sequence);
+    }
+
+    /**
+     * Returns the slot for the given sequence once it is published, or null if the producer has not finished it yet.
+     */
+    ResultSlot peek(long sequence) {
+        int index = (int) sequence & mask;
+        return published.get(index) == sequence ? slots[index] : null;
+    }
+
+    void release(long sequence) {
+        slots[(int) sequence & mask].clear();
+        consumed.lazySet(sequence + 1);
+    }
+
+    long getClaimedCount() {
+        return claimed.get();
+    }
+}
@@ -0,0 +1,16 @@
+package com.hum.requestexecutor.results;
+
+import com.hum.logparsing.models.LogEntry;
+
+final class ResultSlot {
+    LogEntry logEntry;
+    long startMillis;
+    int statusCode;
+    float ttfb;
+    Throwable error;
+
+    void clear() {
+        logEntry = null;
+        error = null;
+    }
+}
@@ -0,0 +1,223 @@
+package com.hum.requestexecutor.results;
+
+import com.hum.logparsing.models.LogEntry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Results sink: request threads put results into a ring buffer without allocating, a single writer thread drains it
+ * in batches into the result file (tab separated lines or binary records), the console and the error log.
+ * <p>
+ * Binary layout: header (magic, version), then records. A string record (type, id, length, UTF-8 bytes) defines an
+ * endpoint id before its first use, a result record (type, original status, status, original time, start time,
+ * original response time, ttfb, endpoint id, failed flag) holds one result. Use {@link ResultConverter} to get the
+ * tab separated layout back.
+ */
+public class ResultWriter {
+    private static final Logger LOGGER = LogManager.getLogger(ResultWriter.class);
+
+    static final int MAGIC = 0x4E524553;
+    static final int VERSION = 1;
+    static final byte STRING_RECORD = 1;
+    static final byte RESULT_RECORD = 2;
+    static final int NULL_STATUS_CODE = Integer.MIN_VALUE;
+
+    private static final int MAX_ENDPOINT_IDS = 1 << 20;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ResultRingBuffer ringBuffer;
+    private final boolean printResults;
+    private final ResultLineFormatter lineFormatter = new ResultLineFormatter();
+    private final Map<String, Integer> endpointIds = new HashMap<>();
+    private final Thread writerThread;
+    private DataOutputStream binaryOutput;
+    private Writer tsvOutput;
+    private boolean unflushed;
+    private IOException writeError;
+    private volatile boolean closed;
+
+    public ResultWriter(Path resultFilePath, ResultFormat format, int bufferSize, boolean printResults) {
+        this.ringBuffer = new ResultRingBuffer(bufferSize);
+        this.printResults = printResults;
+
+        if (resultFilePath != null) {
+            try {
+                if (format == ResultFormat.BINARY) {
+                    this.binaryOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(resultFilePath), OUTPUT_BUFFER_SIZE));
+                    this.binaryOutput.writeInt(MAGIC);
+                    this.binaryOutput.writeShort(VERSION);
+                } else {
+                    this.tsvOutput = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(resultFilePath), StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open result file " + resultFilePath, e);
+            }
+        }
+
+        this.writerThread = new Thread(this::drain, "result-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public void write(LogEntry logEntry, long startMillis, int statusCode, float ttfb) {
+        ringBuffer.publish(logEntry, startMillis, statusCode, ttfb, null);
+    }
+
+    public void writeFailure(LogEntry logEntry, long startMillis, float elapsed, Throwable e) {
+        ringBuffer.publish(logEntry, startMillis, 0, elapsed, e);
+    }
+
+    private void drain() {
+        long sequence = 0;
+
+        while (true) {
+            ResultSlot slot = ringBuffer.peek(sequence);
+
+            if (slot != null) {
+                write(slot);
+                ringBuffer.release(sequence++);
+            } else if (closed && sequence == ringBuffer.getClaimedCount()) {
+                break;
+            } else {
+                flush();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        flush();
+        closeOutputs();
+    }
+
+    private void write(ResultSlot slot) {
+        LogEntry logEntry = slot.logEntry;
+        boolean failed = slot.error != null;
+        String line = null;
+
+        if (failed || printResults || tsvOutput != null) {
+            line = lineFormatter.format(
+                    logEntry.getStatusCode(),
+                    slot.statusCode,
+                    logEntry.getRequestTime(),
+                    slot.startMillis,
+                    logEntry.getResponseTime(),
+                    slot.ttfb,
+                    logEntry.getEndpoint(),
+                    failed
+            );
+        }
+
+        if (failed) {
+            LOGGER.error("Error executing request:" + System.lineSeparator() + line + System.lineSeparator(), slot.error);
+        }
+
+        if (printResults) {
+            System.out.println(line);
+        }
+
+        if (writeError != null) return;
+
+        try {
+            if (tsvOutput != null) {
+                tsvOutput.write(line);
+                tsvOutput.write(System.lineSeparator());
+                unflushed = true;
+            } else if (binaryOutput != null) {
+                writeBinary(slot, logEntry, failed);
+                unflushed = true;
+            }
+        } catch (IOException e) {
+            onWriteError(e);
+        }
+    }
+
+    private void writeBinary(ResultSlot slot, LogEntry logEntry, boolean failed) throws IOException {
+        int endpointId = getEndpointId(logEntry.getEndpoint());
+        Integer originalStatusCode = logEntry.getStatusCode();
+        Float responseTime = logEntry.getResponseTime();
+
+        binaryOutput.writeByte(RESULT_RECORD);
+        binaryOutput.writeInt(originalStatusCode != null ? originalStatusCode : NULL_STATUS_CODE);
+        binaryOutput.writeInt(slot.statusCode);
+        binaryOutput.writeLong(logEntry.getRequestTime());
+        binaryOutput.writeLong(slot.startMillis);
+        binaryOutput.writeFloat(responseTime != null ? responseTime : Float.NaN);
+        binaryOutput.writeFloat(slot.ttfb);
+        binaryOutput.writeInt(endpointId);
+        binaryOutput.writeBoolean(failed);
+    }
+
+    private int getEndpointId(String endpoint) throws IOException {
+        Integer endpointId = endpointIds.get(endpoint);
+        if (endpointId != null) return endpointId;
+
+        if (endpointIds.size() >= MAX_ENDPOINT_IDS) {
+            endpointIds.clear();
+        }
+
+        endpointId = endpointIds.size();
+        endpointIds.put(endpoint, endpointId);
+
+        byte[] bytes = endpoint.getBytes(StandardCharsets.UTF_8);
+        binaryOutput.writeByte(STRING_RECORD);
+        binaryOutput.writeInt(endpointId);
+        binaryOutput.writeInt(bytes.length);
+        binaryOutput.write(bytes);
+
+        return endpointId;
+    }
+
+    private void flush() {
+        if (!unflushed || writeError != null) return;
+
+        try {
+            if (tsvOutput != null) tsvOutput.flush();
+            if (binaryOutput != null) binaryOutput.flush();
+            unflushed = false;
+        } catch (IOException e) {
+            onWriteError(e);
+        }
+    }
+
+    private void onWriteError(IOException e) {
+        writeError = e;
+        LOGGER.error("Failed to write results, the result file is incomplete: ", e);
+    }
+
+    private void closeOutputs() {
+        try {
+            if (tsvOutput != null) tsvOutput.close();
+            if (binaryOutput != null) binaryOutput.close();
+        } catch (IOException e) {
+            if (writeError == null) onWriteError(e);
+        }
+    }
+
+    /**
+     * Waits until all published results are written and closes the result file. Call after request threads stopped.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.hum.scheduler;
+
+import com.hum.logparsing.models.LogEntry;
+import com.hum.requestexecutor.RequestExecutor;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits the replay into lanes, each with its own scheduler thread and request executor lane, so dispatching scales
+ * with cores instead of contending on one queue and one connection pool. The calling thread reads the log entries in
+ * time order and hands every entry to one lane: by the hash of its destination host, so a host keeps its connections
+ * in one pool, or by the hash of its position in the log for an even split. All lanes share the start of the schedule
+ * and one load profile, and the load is logged once for all lanes. A single lane replays on the calling thread.
+ */
+public class LaneDispatcher {
+    public enum LaneKey {
+        HASH,
+        HOST
+    }
+
+    private static final int LANE_QUEUE_CAPACITY = 4096;
+    private static final LogEntry END = new LogEntry(0, null, null, null, null, null, null, null);
+
+    private final ReplayScheduler[] replaySchedulers;
+    private final LaneKey laneKey;
+    private final int loadLogInterval;
+    private long loadLogStartNanos;
+    private long lastLoadLogNanos;
+    private long lastLoadLogDispatchedCount;
+
+    /**
+     * @param loadLogInterval seconds between console lines with the active factors and the dispatch rate of all lanes,
+     *                        0 to disable
+     */
+    public LaneDispatcher(ReplayScheduler[] replaySchedulers, LaneKey laneKey, int loadLogInterval) {
+        if (replaySchedulers.length == 0) {
+            throw new IllegalArgumentException("At least one replay lane is required");
+        }
+
+        this.replaySchedulers = replaySchedulers;
+        this.laneKey = laneKey;
+        this.loadLogInterval = loadLogInterval;
+    }
+
+    public void replay(Iterable<LogEntry> logEntries, RequestExecutor requestExecutor) throws InterruptedException {
+        ScheduledExecutorService loadLogExecutor = loadLogInterval > 0 ? startLoadLog() : null;
+
+        try {
+            replayLanes(logEntries, requestExecutor);
+        } finally {
+            if (loadLogExecutor != null) loadLogExecutor.shutdownNow();
+        }
+    }
+
+    private ScheduledExecutorService startLoadLog() {
+        ScheduledExecutorService loadLogExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        loadLogStartNanos = System.nanoTime();
+        lastLoadLogNanos = loadLogStartNanos;
+        loadLogExecutor.scheduleAtFixedRate(this::logLoad, loadLogInterval, loadLogInterval, TimeUnit.SECONDS);
+
+        return loadLogExecutor;
+    }
+
+    private void logLoad() {
+        long nowNanos = System.nanoTime();
+        long dispatchedCount = getDispatchedCount();
+
+        System.out.println(String.format(Locale.US, "Load at %d s: speed %.2f, scale load %.2f, dispatched %.1f req/s",
+                TimeUnit.NANOSECONDS.toSeconds(nowNanos - loadLogStartNanos), replaySchedulers[0].getSpeed(), replaySchedulers[0].getScaleLoad(),
+                (dispatchedCount - lastLoadLogDispatchedCount) * 1e9 / Math.max(1, nowNanos - lastLoadLogNanos)));
+
+        lastLoadLogNanos = nowNanos;
+        lastLoadLogDispatchedCount = dispatchedCount;
+    }
+
+    private void replayLanes(Iterable<LogEntry> logEntries, RequestExecutor requestExecutor) throws InterruptedException {
+        if (replaySchedulers.length == 1) {
+            replaySchedulers[0].replay(logEntries, requestExecutor);
+            return;
+        }
+
+        Iterator<LogEntry> iterator = logEntries.iterator();
+        if (!iterator.hasNext()) return;
+
+        LogEntry first = iterator.next();
+        long startNanos = System.nanoTime();
+        for (ReplayScheduler replayScheduler : replaySchedulers) replayScheduler.startAt(startNanos, first.getRequestTime());
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] laneThreads = new Thread[replaySchedulers.length];
+        @SuppressWarnings("unchecked")
+        BlockingQueue<LogEntry>[] laneQueues = new BlockingQueue[replaySchedulers.length];
+
+        for (int lane = 0; lane < replaySchedulers.length; lane++) {
+            BlockingQueue<LogEntry> laneQueue = new ArrayBlockingQueue<>(LANE_QUEUE_CAPACITY);
+            ReplayScheduler replayScheduler = replaySchedulers[lane];
+
+            laneQueues[lane] = laneQueue;
+            laneThreads[lane] = new Thread(() -> {
+                try {
+                    replayScheduler.replay(() -> new LaneIterator(laneQueue), requestExecutor);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "replay-lane-" + lane);
+            laneThreads[lane].start();
+        }
+
+        try {
+            long sequence = 0;
+            LogEntry logEntry = first;
+
+            while (put(laneQueues[selectLane(logEntry, sequence++)], logEntry, failure) && iterator.hasNext()) {
+                logEntry = iterator.next();
+            }
+        } finally {
+            for (BlockingQueue<LogEntry> laneQueue : laneQueues) {
+                if (failure.get() != null) laneQueue.clear();
+                put(laneQueue, END, failure);
+            }
+
+            for (Thread laneThread : laneThreads) laneThread.join();
+        }
+
+        Throwable laneFailure = failure.get();
+        if (laneFailure instanceof RuntimeException) throw (RuntimeException) laneFailure;
+        if (laneFailure instanceof Error) throw (Error) laneFailure;
+    }
+
+    /**
+     * Waits for room in a lane queue unless a lane failed.
+     *
+     * @return false if a lane failed
+     */
+    private static boolean put(BlockingQueue<LogEntry> laneQueue, LogEntry logEntry, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (!laneQueue.offer(logEntry, 100, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null && logEntry != END) return false;
+        }
+
+        return failure.get() == null;
+    }
+
+    private int selectLane(LogEntry logEntry, long sequence) {
+        long hash = laneKey == LaneKey.HOST && logEntry.getDestinationHost() != null
+                ? logEntry.getDestinationHost().hashCode()
+                : sequence;
+
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return (int) Long.remainderUnsigned(hash ^ (hash >>> 31), replaySchedulers.length);
+    }
+
+    public long getDispatchedCount() {
+        long dispatchedCount = 0;
+        for (ReplayScheduler replayScheduler : replaySchedulers) dispatchedCount += replayScheduler.getDispatchedCount();
+
+        return dispatchedCount;
+    }
+
+    public long getLateCount() {
+        long lateCount = 0;
+        for (ReplayScheduler replayScheduler : replaySchedulers) lateCount += replayScheduler.getLateCount();
+
+        return lateCount;
+    }
+
+    public long getMaxLagMillis() {
+        long maxLagMillis = 0;
+        for (ReplayScheduler replayScheduler : replaySchedulers) maxLagMillis = Math.max(maxLagMillis, replayScheduler.getMaxLagMillis());
+
+        return maxLagMillis;
+    }
+
+    /**
+     * Active factors of the first lane, all lanes follow the same load profile.
+     */
+    public String describeLoad() {
+        return replaySchedulers[0].describeLoad();
+    }
+
+    /**
+     * Entries of one lane until the end marker.
+     */
+    private static final class LaneIterator implements Iterator<LogEntry> {
+        private final BlockingQueue<LogEntry> laneQueue;
+        private LogEntry next;
+
+        private LaneIterator(BlockingQueue<LogEntry> laneQueue) {
+            this.laneQueue = laneQueue;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = laneQueue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+
+            return next != END;
+        }
+
+        @Override
+        public LogEntry next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            LogEntry logEntry = next;
+            next = null;
+            return logEntry;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.hum.scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Speed and scale load as functions of the time since replay start. A profile is a list of phases separated by
+ * semicolons or new lines, {@code #} starts a comment:
+ * <pre>
+ * hold 10m                       keep the current factors for 10 minutes
+ * ramp 20m speed=2 scale=4       change the factors linearly to the targets over 20 minutes
+ * hold 5m scale=1                set the factors at once and keep them
+ * step 4 5m scale=+0.5           4 steps of 5 minutes, every step adds 0.5 to the factors first
+ * </pre>
+ * Durations take ms, s, m or h, seconds by default. The factors of the last phase are kept until the log ends.
+ * Immutable, one profile is shared by the schedulers of all lanes.
+ */
+public class LoadProfile {
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)?");
+    private static final Pattern FACTOR = Pattern.compile("(speed|scale)=(\\+|-)?(\\d+(?:\\.\\d+)?)");
+
+    private final List<Phase> phases;
+
+    private LoadProfile(List<Phase> phases) {
+        this.phases = phases;
+    }
+
+    public static LoadProfile constant(double speed, double scaleLoad) {
+        return new Builder(speed, scaleLoad).build();
+    }
+
+    /**
+     * @param profile profile text, or the path of a file with it
+     */
+    public static LoadProfile parse(String profile, double speed, double scaleLoad) throws RuntimeException {
+        String text = readProfile(profile);
+
+        Builder builder = new Builder(speed, scaleLoad);
+        for (String line : text.split("[;\n]")) {
+            int comment = line.indexOf('#');
+            String phase = (comment >= 0 ? line.substring(0, comment) : line).trim().toLowerCase(Locale.ROOT);
+
+            if (!phase.isEmpty()) {
+                builder.addPhase(phase);
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static String readProfile(String profile) throws RuntimeException {
+        Path path;
+        try {
+            path = Paths.get(profile.trim());
+        } catch (InvalidPathException e) {
+            return profile;
+        }
+
+        if (!Files.isRegularFile(path)) return profile;
+
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read load profile " + path, e);
+        }
+    }
+
+    public boolean isConstant() {
+        return phases.size() == 1;
+    }
+
+    public double getSpeed(double elapsedMillis) {
+        Phase phase = findPhaseByElapsed(elapsedMillis);
+        return phase.speedAt(elapsedMillis - phase.startMillis);
+    }
+
+    public double getScaleLoad(double elapsedMillis) {
+        Phase phase = findPhaseByElapsed(elapsedMillis);
+        return phase.scaleLoadAt(elapsedMillis - phase.startMillis);
+    }
+
+    /**
+     * Time since replay start when the replay reaches a point of the log: the inverse of the integral of the speed.
+     *
+     * @param logMillis log time since the first request
+     */
+    public double getElapsedMillis(double logMillis) {
+        Phase phase = findPhaseByLog(logMillis);
+        return phase.startMillis + phase.elapsedFor(logMillis - phase.startLogMillis);
+    }
+
+    private Phase findPhaseByElapsed(double elapsedMillis) {
+        int low = 0;
+        int high = phases.size() - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (elapsedMillis >= phases.get(middle).startMillis) low = middle;
+            else high = middle - 1;
+        }
+
+        return phases.get(low);
+    }
+
+    private Phase findPhaseByLog(double logMillis) {
+        int low = 0;
+        int high = phases.size() - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (logMillis >= phases.get(middle).startLogMillis) low = middle;
+            else high = middle - 1;
+        }
+
+        return phases.get(low);
+    }
+
+    /**
+     * A phase changes both factors linearly from their start to their end values over its duration.
+     */
+    private static final class Phase {
+        private final double startMillis;
+        private final double startLogMillis;
+        private final double durationMillis;
+        private final double startSpeed;
+        private final double endSpeed;
+        private final double startScaleLoad;
+        private final double endScaleLoad;
+
+        private Phase(double startMillis, double startLogMillis, double durationMillis, double startSpeed, double endSpeed, double startScaleLoad, double endScaleLoad) {
+            this.startMillis = startMillis;
+            this.startLogMillis = startLogMillis;
+            this.durationMillis = durationMillis;
+            this.startSpeed = startSpeed;
+            this.endSpeed = endSpeed;
+            this.startScaleLoad = startScaleLoad;
+            this.endScaleLoad = endScaleLoad;
+        }
+
+        private double speedAt(double millis) {
+            return interpolate(startSpeed, endSpeed, millis);
+        }
+
+        private double scaleLoadAt(double millis) {
+            return interpolate(startScaleLoad, endScaleLoad, millis);
+        }
+
+        private double interpolate(double start, double end, double millis) {
+            if (durationMillis <= 0 || millis >= durationMillis) return end;
+            return start + (end - start) * Math.max(0, millis) / durationMillis;
+        }
+
+        private double logMillis() {
+            return durationMillis * (startSpeed + endSpeed) / 2;
+        }
+
+        /**
+         * Solves logMillis = startSpeed * t + (endSpeed - startSpeed) / (2 * duration) * t^2 for t.
+         */
+        private double elapsedFor(double logMillis) {
+            if (logMillis <= 0) return logMillis / startSpeed;
+
+            double acceleration = durationMillis > 0 && !Double.isInfinite(durationMillis)
+                    ? (endSpeed - startSpeed) / (2 * durationMillis) : 0;
+            if (Math.abs(acceleration) < 1e-15) return logMillis / startSpeed;
+
+            double discriminant = startSpeed * startSpeed + 4 * acceleration * logMillis;
+            return (-startSpeed + Math.sqrt(Math.max(0, discriminant))) / (2 * acceleration);
+        }
+    }
+
+    private static final class Builder {
+        private final List<Phase> phases = new ArrayList<>();
+        private double elapsedMillis;
+        private double logMillis;
+        private double speed;
+        private double scaleLoad;
+
+        private Builder(double speed, double scaleLoad) {
+            if (!(speed > 0)) throw new IllegalArgumentException("Speed must be greater than 0");
+            if (!(scaleLoad >= 0)) throw new IllegalArgumentException("Scale load must not be negative");
+
+            this.speed = speed;
+            this.scaleLoad = scaleLoad;
+        }
+
+        private void addPhase(String phase) {
+            String[] tokens = phase.split("\\s+");
+
+            switch (tokens[0]) {
+                case "hold":
+                case "ramp": {
+                    if (tokens.length < 2) throw new IllegalArgumentException("Duration missed in load profile phase: " + phase);
+
+                    double[] targets = parseFactors(tokens, 2, phase);
+                    if (tokens[0].equals("hold")) {
+                        add(parseDuration(tokens[1]), targets[0], targets[0], targets[1], targets[1]);
+                    } else {
+                        add(parseDuration(tokens[1]), speed, targets[0], scaleLoad, targets[1]);
+                    }
+                    break;
+                }
+                case "step": {
+                    if (tokens.length < 3) throw new IllegalArgumentException("Count or duration missed in load profile phase: " + phase);
+
+                    int count = Integer.parseInt(tokens[1]);
+                    double durationMillis = parseDuration(tokens[2]);
+                    for (int i = 0; i < count; i++) {
+                        double[] targets = parseFactors(tokens, 3, phase);
+                        add(durationMillis, targets[0], targets[0], targets[1], targets[1]);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown load profile phase: " + phase);
+            }
+        }
+
+        /**
+         * Target speed and scale load of a phase: absolute, or relative to the current factors with a sign.
+         */
+        private double[] parseFactors(String[] tokens, int from, String phase) {
+            double[] targets = {speed, scaleLoad};
+
+            for (int i = from; i < tokens.length; i++) {
+                Matcher matcher = FACTOR.matcher(tokens[i]);
+                if (!matcher.matches()) throw new IllegalArgumentException("Invalid factor \"" + tokens[i] + "\" in load profile phase: " + phase);
+
+                int factor = matcher.group(1).equals("speed") ? 0 : 1;
+                double value = Double.parseDouble(matcher.group(3));
+                if (matcher.group(2) != null) {
+                    value = targets[factor] + (matcher.group(2).equals("+") ? value : -value);
+                }
+                targets[factor] = value;
+            }
+
+            if (!(targets[0] > 0)) throw new IllegalArgumentException("Speed must be greater than 0 in load profile phase: " + phase);
+            if (!(targets[1] >= 0)) throw new IllegalArgumentException("Scale load must not be negative in load profile phase: " + phase);
+
+            return targets;
+        }
+
+        private static double parseDuration(String duration) {
+            Matcher matcher = DURATION.matcher(duration);
+            if (!matcher.matches()) throw new IllegalArgumentException("Invalid duration in load profile: " + duration);
+
+            double value = Double.parseDouble(matcher.group(1));
+            String unit = matcher.group(2) != null ? matcher.group(2) : "s";
+            switch (unit) {
+                case "ms":
+                    return value;
+                case "m":
+                    return value * 60_000;
+                case "h":
+                    return value * 3_600_000;
+                case "s":
+                default:
+                    return value * 1000;
+            }
+        }
+
+        private void add(double durationMillis, double startSpeed, double endSpeed, double startScaleLoad, double endScaleLoad) {
+            Phase phase = new Phase(elapsedMillis, logMillis, durationMillis, startSpeed, endSpeed, startScaleLoad, endScaleLoad);
+            phases.add(phase);
+
+            elapsedMillis += durationMillis;
+            logMillis += phase.logMillis();
+            speed = endSpeed;
+            scaleLoad = endScaleLoad;
+        }
+
+        private LoadProfile build() {
+            add(Double.POSITIVE_INFINITY, speed, speed, scaleLoad, scaleLoad);
+            return new LoadProfile(phases);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.hum.scheduler;
+
+import com.hum.logparsing.models.LogEntry;
+import com.hum.metrics.PipelineMetrics;
+import com.hum.requestexecutor.RequestExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dispatches log entries at absolute target times: replay start + the time the load profile takes to replay
+ * (request time - first request time) of the log, i.e. (request time - first request time) / speed for a fixed speed.
+ * Waiting parks the thread until shortly before the target and spins the rest, so sleep overshoot and time spent
+ * inside executeRequest never accumulate; after a stall the late entries are sent immediately to catch up.
+ * Scaled-up copies placed after their entry are queued and dispatched in target time order with the following entries.
+ */
+public class ReplayScheduler {
+    private static final Logger LOGGER = LogManager.getLogger(ReplayScheduler.class);
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LoadProfile loadProfile;
+    private final ScaleLoadSpreader scaleLoadSpreader;
+    private final PipelineMetrics pipelineMetrics;
+    private final int lane;
+    private final PriorityQueue<ScheduledCopy> scheduledCopies;
+    private long startNanos;
+    private long firstRequestTime;
+    private boolean started;
+    private long scheduledCount;
+    private volatile long dispatchedCount;
+    private long lateCount;
+    private long maxLagNanos;
+    private volatile double speed;
+    private volatile double scaleLoad;
+
+    /**
+     * @param lane lane of the request executor the requests are sent to
+     */
+    public ReplayScheduler(LoadProfile loadProfile, ScaleLoadSpreader scaleLoadSpreader, PipelineMetrics pipelineMetrics, int lane) {
+        this.loadProfile = loadProfile;
+        this.scaleLoadSpreader = scaleLoadSpreader;
+        this.pipelineMetrics = pipelineMetrics;
+        this.lane = lane;
+        this.speed = loadProfile.getSpeed(0);
+        this.scaleLoad = loadProfile.getScaleLoad(0);
+        this.scheduledCopies = new PriorityQueue<>();
+    }
+
+    public void replay(Iterable<LogEntry> logEntries, RequestExecutor requestExecutor) throws InterruptedException {
+        for (LogEntry logEntry : logEntries) {
+            long targetNanos = getTargetNanos(logEntry.getRequestTime());
+
+            double elapsedMillis = (targetNanos - startNanos) / 1_000_000d;
+            speed = loadProfile.getSpeed(elapsedMillis);
+            scaleLoad = loadProfile.getScaleLoad(elapsedMillis);
+
+            int copies = scaleLoadSpreader.spread(scaleLoad);
+            for (int i = 0; i < copies; i++) {
+                scheduledCopies.add(new ScheduledCopy(logEntry, targetNanos + scaleLoadSpreader.getOffset(i), scheduledCount++));
+            }
+
+            dispatchScheduledCopies(targetNanos, false, requestExecutor);
+        }
+
+        dispatchScheduledCopies(0, true, requestExecutor);
+    }
+
+    private void dispatchScheduledCopies(long untilNanos, boolean all, RequestExecutor requestExecutor) throws InterruptedException {
+        while (!scheduledCopies.isEmpty() && (all || scheduledCopies.peek().targetNanos - untilNanos <= 0)) {
+            ScheduledCopy copy = scheduledCopies.poll();
+            awaitDispatchTime(copy);
+
+            try {
+                requestExecutor.executeRequest(lane, copy.logEntry, copy.targetNanos);
+            } catch (Exception e) {
+                LOGGER.error("Error executing request: ", e);
+            }
+        }
+    }
+
+    /**
+     * Anchors the schedule at a start shared with the schedulers of other lanes, otherwise it starts with the first entry.
+     */
+    public void startAt(long startNanos, long firstRequestTime) {
+        this.startNanos = startNanos;
+        this.firstRequestTime = firstRequestTime;
+        this.started = true;
+    }
+
+    private long getTargetNanos(long requestTime) {
+        if (!started) startAt(System.nanoTime(), requestTime);
+
+        return startNanos + (long) (loadProfile.getElapsedMillis(requestTime - firstRequestTime) * 1_000_000d);
+    }
+
+    private void awaitDispatchTime(ScheduledCopy copy) throws InterruptedException {
+        waitUntil(copy.targetNanos);
+
+        long lagNanos = System.nanoTime() - copy.targetNanos;
+        dispatchedCount++;
+        if (lagNanos > LATE_THRESHOLD_NANOS) lateCount++;
+        if (lagNanos > maxLagNanos) maxLagNanos = lagNanos;
+        pipelineMetrics.recordDispatch(copy.logEntry.getRequestTime(), copy.targetNanos, lagNanos);
+    }
+
+    /**
+     * Active factors, for logs written by other threads.
+     */
+    public String describeLoad() {
+        return String.format(Locale.US, "speed=%.3f scaleLoad=%.3f", speed, scaleLoad);
+    }
+
+    private static void waitUntil(long targetNanos) throws InterruptedException {
+        while (true) {
+            long remaining = targetNanos - System.nanoTime();
+            if (remaining <= 0) return;
+
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getScaleLoad() {
+        return scaleLoad;
+    }
+
+    /**
+     * Written by the scheduler thread only, readable from other threads.
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    public long getLateCount() {
+        return lateCount;
+    }
+
+    public long getMaxLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLagNanos);
+    }
+
+    private static final class ScheduledCopy implements Comparable<ScheduledCopy> {
+        private final LogEntry logEntry;
+        private final long targetNanos;
+        private final long sequence;
+
+        private ScheduledCopy(LogEntry logEntry, long targetNanos, long sequence) {
+            this.logEntry = logEntry;
+            this.targetNanos = targetNanos;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ScheduledCopy other) {
+            int byTime = Long.compare(targetNanos - other.targetNanos, 0);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
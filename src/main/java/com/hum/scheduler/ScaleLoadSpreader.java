@@ -0,0 +1,72 @@
+package com.hum.scheduler;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how many copies of a request a scale factor sends and when: the first copy keeps the logged time, the others
+ * are placed within a window after it, so a scaled-up replay doesn't fire every copy in the same microsecond.
+ * A fractional factor sends one more copy with that probability. Draws come from one seeded generator owned by the
+ * replay thread, so a seed reproduces the same copies and offsets.
+ */
+public class ScaleLoadSpreader {
+    public enum Mode {
+        BURST,
+        EVEN,
+        RANDOM
+    }
+
+    private final Mode mode;
+    private final long windowNanos;
+    private final SplittableRandom random;
+    private long[] offsets;
+
+    public ScaleLoadSpreader(Mode mode, int windowMillis, long seed) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Scale load window must not be negative");
+        }
+
+        this.mode = mode;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.random = new SplittableRandom(seed);
+        this.offsets = new long[1];
+    }
+
+    /**
+     * Draws the copies of one request, their offsets are available from {@link #getOffset(int)} until the next call.
+     *
+     * @return count of copies, 0 when a factor below 1 skips the request
+     */
+    public int spread(double scaleLoad) {
+        int copies = (int) scaleLoad;
+        double fractionalPart = scaleLoad - copies;
+        if (fractionalPart > 0 && random.nextDouble() < fractionalPart) copies++;
+
+        if (copies == 0) return 0;
+        if (copies > offsets.length) offsets = new long[copies];
+
+        offsets[0] = 0;
+        for (int i = 1; i < copies; i++) {
+            switch (mode) {
+                case EVEN:
+                    offsets[i] = windowNanos * i / copies;
+                    break;
+                case RANDOM:
+                    offsets[i] = windowNanos > 0 ? random.nextLong(windowNanos) : 0;
+                    break;
+                case BURST:
+                default:
+                    offsets[i] = 0;
+            }
+        }
+
+        return copies;
+    }
+
+    /**
+     * Offset in nanoseconds of a copy from the logged time.
+     */
+    public long getOffset(int copy) {
+        return offsets[copy];
+    }
+}
@@ -0,0 +1,26 @@
+package com.hum.workload;
+
+/**
+ * Layout of a compiled workload file, all numbers big-endian:
+ * <pre>
+ * header        magic, version, flags, reserved, record count, records offset, string index offset, string data offset,
+ *               string count, padding
+ * records       fixed-width, sorted by request time:
+ *               request time (epoch millis), method, host, endpoint, referer, user agent (string ids, -1 for none),
+ *               original status code, original response time
+ * string index  string count + 1 offsets into the string data, string id i spans from offset i to offset i + 1
+ * string data   UTF-8 bytes of the strings back to back; frequent strings are stored once, rare ones may repeat
+ * </pre>
+ */
+final class WorkloadFile {
+    static final int MAGIC = 0x4E52574C;
+    static final short VERSION = 2;
+    static final byte FLAG_SECOND_PRECISION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int RECORD_SIZE = 36;
+    static final int NO_STRING = -1;
+    static final int NULL_STATUS_CODE = Integer.MIN_VALUE;
+
+    private WorkloadFile() {
+    }
+}
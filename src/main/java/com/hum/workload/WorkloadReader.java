@@ -0,0 +1,171 @@
+package com.hum.workload;
+
+import com.hum.logparsing.LogSource;
+import com.hum.logparsing.models.LogEntry;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Replays a compiled workload file: only the header is read up front, records and their strings are read from
+ * memory-mapped windows of the file while iterating.
+ */
+public class WorkloadReader implements LogSource, Iterable<LogEntry> {
+    private static final int RECORDS_PER_WINDOW = 1 << 24;
+
+    private final FileChannel channel;
+    private final boolean secondPrecision;
+    private final long recordCount;
+    private final long recordsOffset;
+    private final WorkloadStrings strings;
+    private final String destinationHost;
+    private final long startIndex;
+    private final long endIndex;
+
+    public WorkloadReader(Path workloadPath, Long startTimestamp, Long endTimestamp, String destinationHost, String httpProtocol) throws RuntimeException {
+        try {
+            this.channel = FileChannel.open(workloadPath, StandardOpenOption.READ);
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, WorkloadFile.HEADER_SIZE);
+            if (header.getInt() != WorkloadFile.MAGIC || header.getShort() != WorkloadFile.VERSION) {
+                throw new RuntimeException("Not a workload file: " + workloadPath);
+            }
+
+            this.secondPrecision = (header.get() & WorkloadFile.FLAG_SECOND_PRECISION) != 0;
+            header.get();
+            this.recordCount = header.getLong();
+            this.recordsOffset = header.getLong();
+            long stringIndexOffset = header.getLong();
+            long stringDataOffset = header.getLong();
+            this.strings = new WorkloadStrings(channel, stringIndexOffset, stringDataOffset, header.getInt());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open workload file " + workloadPath, e);
+        }
+
+        if (destinationHost != null && !destinationHost.contains("https://") && !destinationHost.contains("http://")) {
+            destinationHost = httpProtocol + "://" + destinationHost;
+        }
+        this.destinationHost = destinationHost;
+        this.startIndex = startTimestamp != null ? findFirstIndex(startTimestamp * 1000) : 0;
+        this.endIndex = endTimestamp != null ? Math.max(startIndex, findFirstIndex(endTimestamp * 1000)) : recordCount;
+
+        System.out.println("Count of requests to execute: " + (endIndex - startIndex));
+    }
+
+    private long findFirstIndex(long requestTime) throws RuntimeException {
+        ByteBuffer time = ByteBuffer.allocate(Long.BYTES);
+        long low = 0;
+        long high = recordCount;
+
+        try {
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+
+                ((Buffer) time).clear();
+                channel.read(time, recordsOffset + middle * WorkloadFile.RECORD_SIZE);
+
+                if (time.getLong(0) < requestTime) low = middle + 1;
+                else high = middle;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read workload file", e);
+        }
+
+        return low;
+    }
+
+    @Override
+    public Iterable<LogEntry> getLogEntries() {
+        return this;
+    }
+
+    @Override
+    public boolean isSecondPrecision() {
+        return secondPrecision;
+    }
+
+    @Override
+    public long getOutOfOrderCount() {
+        return 0;
+    }
+
+    @Override
+    public long getParsedCount() {
+        return 0;
+    }
+
+    @Override
+    public Iterator<LogEntry> iterator() {
+        return new Iterator<LogEntry>() {
+            private long index = startIndex;
+            private long windowStart = -1;
+            private MappedByteBuffer window;
+
+            @Override
+            public boolean hasNext() {
+                return index < endIndex;
+            }
+
+            @Override
+            public LogEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                if (window == null || index - windowStart >= RECORDS_PER_WINDOW) {
+                    mapWindow();
+                }
+
+                int position = (int) ((index++ - windowStart) * WorkloadFile.RECORD_SIZE);
+                long requestTime = window.getLong(position);
+                String method = strings.get(window.getInt(position + 8));
+                String host = destinationHost != null ? destinationHost : strings.get(window.getInt(position + 12));
+                String endpoint = strings.get(window.getInt(position + 16));
+                String refererHeader = strings.get(window.getInt(position + 20));
+                String userAgentHeader = strings.get(window.getInt(position + 24));
+                int statusCode = window.getInt(position + 28);
+                float responseTime = window.getFloat(position + 32);
+
+                return new LogEntry(
+                        requestTime,
+                        method,
+                        endpoint,
+                        statusCode != WorkloadFile.NULL_STATUS_CODE ? statusCode : null,
+                        Float.isNaN(responseTime) ? null : responseTime,
+                        host,
+                        refererHeader,
+                        userAgentHeader
+                );
+            }
+
+            private void mapWindow() {
+                windowStart = index;
+                long records = Math.min(RECORDS_PER_WINDOW, endIndex - windowStart);
+
+                try {
+                    window = channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            recordsOffset + windowStart * WorkloadFile.RECORD_SIZE,
+                            records * WorkloadFile.RECORD_SIZE
+                    );
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to map workload file", e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close workload file", e);
+        }
+    }
+}
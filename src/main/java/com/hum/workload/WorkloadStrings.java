@@ -0,0 +1,131 @@
+package com.hum.workload;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * String table of a workload file, decoded when a record is read. The offset index and the string data are mapped in
+ * windows that move forward with the ids, which grow with the time of the records; older strings are read with
+ * positional reads, and recently decoded strings are cached. Not thread-safe, strings are read by the iterating thread.
+ */
+final class WorkloadStrings {
+    private static final int INDEX_WINDOW_ENTRIES = 1 << 24;
+    private static final int DATA_WINDOW_BYTES = 1 << 27;
+    private static final int CACHE_BITS = 12;
+
+    private final FileChannel channel;
+    private final long indexOffset;
+    private final long dataOffset;
+    private final long dataSize;
+    private final int count;
+    private final int[] cachedIds;
+    private final String[] cachedStrings;
+    private final ByteBuffer offsets;
+    private MappedByteBuffer indexWindow;
+    private long indexWindowStart;
+    private long indexWindowEnd;
+    private MappedByteBuffer dataWindow;
+    private long dataWindowStart;
+    private long dataWindowEnd;
+    private ByteBuffer bytes;
+
+    WorkloadStrings(FileChannel channel, long indexOffset, long dataOffset, int count) throws IOException {
+        this.channel = channel;
+        this.indexOffset = indexOffset;
+        this.dataOffset = dataOffset;
+        this.dataSize = channel.size() - dataOffset;
+        this.count = count;
+        this.cachedIds = new int[1 << CACHE_BITS];
+        this.cachedStrings = new String[1 << CACHE_BITS];
+        this.offsets = ByteBuffer.allocate(2 * Long.BYTES);
+        this.bytes = ByteBuffer.allocate(256);
+        Arrays.fill(cachedIds, WorkloadFile.NO_STRING);
+    }
+
+    String get(int stringId) throws RuntimeException {
+        if (stringId == WorkloadFile.NO_STRING) return null;
+        if (stringId < 0 || stringId >= count) {
+            throw new RuntimeException("Invalid string id in workload file: " + stringId);
+        }
+
+        int slot = (stringId * 0x9E3779B9) >>> (Integer.SIZE - CACHE_BITS);
+        if (cachedIds[slot] == stringId) return cachedStrings[slot];
+
+        try {
+            String string = decode(stringId);
+            cachedIds[slot] = stringId;
+            cachedStrings[slot] = string;
+
+            return string;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read workload file strings", e);
+        }
+    }
+
+    private String decode(int stringId) throws IOException {
+        long start;
+        long end;
+
+        if (stringId >= indexWindowEnd) mapIndexWindow(stringId);
+        if (stringId >= indexWindowStart) {
+            int position = (int) ((stringId - indexWindowStart) * Long.BYTES);
+            start = indexWindow.getLong(position);
+            end = indexWindow.getLong(position + Long.BYTES);
+        } else {
+            ((Buffer) offsets).clear();
+            read(offsets, indexOffset + (long) stringId * Long.BYTES);
+            start = offsets.getLong(0);
+            end = offsets.getLong(Long.BYTES);
+        }
+
+        int length = (int) (end - start);
+        if (length == 0) return "";
+        if (end > dataWindowEnd && length <= DATA_WINDOW_BYTES) mapDataWindow(start);
+        if (start >= dataWindowStart && end <= dataWindowEnd) {
+            ByteBuffer string = dataWindow.duplicate();
+            ((Buffer) string).position((int) (start - dataWindowStart));
+            ((Buffer) string).limit((int) (end - dataWindowStart));
+
+            return StandardCharsets.UTF_8.decode(string).toString();
+        }
+
+        if (length > bytes.capacity()) bytes = ByteBuffer.allocate(Math.max(length, bytes.capacity() * 2));
+        ((Buffer) bytes).clear();
+        ((Buffer) bytes).limit(length);
+        read(bytes, dataOffset + start);
+
+        return new String(bytes.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps the index window holding the id, with one entry more for the end offset of its last string.
+     */
+    private void mapIndexWindow(int stringId) throws IOException {
+        indexWindowStart = stringId;
+        indexWindowEnd = Math.min((long) stringId + INDEX_WINDOW_ENTRIES, count);
+        indexWindow = channel.map(
+                FileChannel.MapMode.READ_ONLY,
+                indexOffset + indexWindowStart * Long.BYTES,
+                (indexWindowEnd - indexWindowStart + 1) * Long.BYTES
+        );
+    }
+
+    private void mapDataWindow(long start) throws IOException {
+        dataWindowStart = start;
+        dataWindowEnd = Math.min(start + DATA_WINDOW_BYTES, dataSize);
+        dataWindow = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + dataWindowStart, dataWindowEnd - dataWindowStart);
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of workload file");
+            }
+        }
+    }
+}
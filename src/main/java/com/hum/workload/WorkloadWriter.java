@@ -0,0 +1,148 @@
+package com.hum.workload;
+
+import com.hum.logparsing.LogSource;
+import com.hum.logparsing.models.LogEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles parsed log entries into a workload file, see {@link WorkloadFile}. Strings are written to temporary index and
+ * data files as they first show up and appended after the records. Only the ids of the most recently used strings are
+ * kept to store them once, so memory doesn't grow with the count of distinct endpoints.
+ */
+public class WorkloadWriter {
+    private static final int STRING_CACHE_SIZE = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Map<String, Integer> stringIds = new LinkedHashMap<String, Integer>(STRING_CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > STRING_CACHE_SIZE;
+        }
+    };
+    private DataOutputStream stringIndex;
+    private DataOutputStream stringData;
+    private long stringDataSize;
+    private int stringCount;
+
+    public long write(Path workloadPath, LogSource logSource) throws RuntimeException {
+        long recordCount = 0;
+        Path directory = workloadPath.toAbsolutePath().getParent();
+        Path stringIndexPath = null;
+        Path stringDataPath = null;
+
+        try {
+            stringIndexPath = Files.createTempFile(directory, "workload-index", ".tmp");
+            stringDataPath = Files.createTempFile(directory, "workload-strings", ".tmp");
+
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(workloadPath), BUFFER_SIZE))) {
+                try (DataOutputStream stringIndex = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringIndexPath), BUFFER_SIZE));
+                     DataOutputStream stringData = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringDataPath), BUFFER_SIZE))) {
+                    this.stringIndex = stringIndex;
+                    this.stringData = stringData;
+                    output.write(new byte[WorkloadFile.HEADER_SIZE]);
+
+                    for (LogEntry logEntry : logSource.getLogEntries()) {
+                        Integer statusCode = logEntry.getStatusCode();
+                        Float responseTime = logEntry.getResponseTime();
+
+                        output.writeLong(logEntry.getRequestTime());
+                        output.writeInt(getStringId(logEntry.getMethod()));
+                        output.writeInt(getStringId(logEntry.getDestinationHost()));
+                        output.writeInt(getStringId(logEntry.getEndpoint()));
+                        output.writeInt(getStringId(logEntry.getRefererHeader()));
+                        output.writeInt(getStringId(logEntry.getUserAgentHeader()));
+                        output.writeInt(statusCode != null ? statusCode : WorkloadFile.NULL_STATUS_CODE);
+                        output.writeFloat(responseTime != null ? responseTime : Float.NaN);
+                        recordCount++;
+                    }
+
+                    stringIndex.writeLong(stringDataSize);
+                }
+
+                Files.copy(stringIndexPath, output);
+                Files.copy(stringDataPath, output);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write workload file " + workloadPath, e);
+        } finally {
+            stringIds.clear();
+            deleteTempFile(stringIndexPath);
+            deleteTempFile(stringDataPath);
+        }
+
+        long stringIndexOffset = WorkloadFile.HEADER_SIZE + recordCount * WorkloadFile.RECORD_SIZE;
+        long stringDataOffset = stringIndexOffset + (stringCount + 1L) * Long.BYTES;
+        writeHeader(workloadPath, logSource.isSecondPrecision(), recordCount, stringIndexOffset, stringDataOffset);
+
+        return recordCount;
+    }
+
+    private int getStringId(String string) throws IOException {
+        if (string == null) return WorkloadFile.NO_STRING;
+
+        Integer stringId = stringIds.get(string);
+        if (stringId == null) {
+            if (stringCount == Integer.MAX_VALUE) {
+                throw new RuntimeException("Too many strings for a workload file");
+            }
+
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            stringIndex.writeLong(stringDataSize);
+            stringData.write(bytes);
+            stringDataSize += bytes.length;
+
+            stringId = stringCount++;
+            stringIds.put(string, stringId);
+        }
+
+        return stringId;
+    }
+
+    private static void deleteTempFile(Path path) {
+        if (path == null) return;
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.println("Failed to delete temporary file " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void writeHeader(Path workloadPath, boolean secondPrecision, long recordCount, long stringIndexOffset, long stringDataOffset) {
+        ByteBuffer header = ByteBuffer.allocate(WorkloadFile.HEADER_SIZE);
+        header.putInt(WorkloadFile.MAGIC)
+                .putShort(WorkloadFile.VERSION)
+                .put(secondPrecision ? WorkloadFile.FLAG_SECOND_PRECISION : 0)
+                .put((byte) 0)
+                .putLong(recordCount)
+                .putLong(WorkloadFile.HEADER_SIZE)
+                .putLong(stringIndexOffset)
+                .putLong(stringDataOffset)
+                .putInt(stringCount);
+        ((Buffer) header).rewind();
+
+        try (FileChannel channel = FileChannel.open(workloadPath, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write workload file header " + workloadPath, e);
+        }
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+}